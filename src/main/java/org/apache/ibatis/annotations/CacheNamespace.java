@@ -21,8 +21,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.EstimatingWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
 
 /**
  * @author Clinton Begin
@@ -38,12 +42,71 @@ public @interface CacheNamespace {
 
   long flushInterval() default 0;
 
+  /**
+   * Milliseconds after which each entry expires on its own. {@code 0} means entries do not expire.
+   * @since 3.5.2
+   */
+  long timeToLive() default 0;
+
+  /**
+   * Milliseconds without a read after which each entry expires on its own. {@code 0} means entries do not expire.
+   * @since 3.5.2
+   */
+  long timeToIdle() default 0;
+
+  /**
+   * Milliseconds after which a read of an entry also reloads it in the background. {@code 0} means entries are not
+   * reloaded.
+   * @since 3.5.2
+   */
+  long refreshAfter() default 0;
+
   int size() default 1024;
 
+  /**
+   * Maximum total weight of the cached values, in bytes as estimated by the {@link #weigher()}.
+   * {@code 0} means the cache is only bounded by {@link #size()}.
+   * @since 3.5.2
+   */
+  long maxBytes() default 0;
+
+  /**
+   * Weigher that estimates the size of cached values when {@link #maxBytes()} is set.
+   * @since 3.5.2
+   */
+  Class<? extends Weigher> weigher() default EstimatingWeigher.class;
+
+  /**
+   * Serialized copies of a read/write cache that reach this many bytes are stored compressed. Copies that are not
+   * bytes, such as those of {@code DEEP_COPY}, are not compressed. {@code 0} means values are not compressed.
+   * @since 3.5.2
+   */
+  int compressThreshold() default 0;
+
   boolean readWrite() default true;
 
+  /**
+   * Codec that makes the copies returned by a read/write cache.
+   * @since 3.5.2
+   */
+  Class<? extends CacheCodec> codec() default JavaSerializationCodec.class;
+
   boolean blocking() default false;
 
+  /**
+   * Clears the cache in constant time by moving to a new generation of keys, leaving the stale entries to the
+   * eviction policy.
+   * @since 3.5.2
+   */
+  boolean generational() default false;
+
+  /**
+   * Saves the cache contents when the application stops and reads them back when it starts again. Requires the
+   * {@code cacheSnapshotDirectory} setting.
+   * @since 3.5.2
+   */
+  boolean snapshot() default false;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
@@ -63,4 +63,18 @@ public @interface Options {
   String keyColumn() default "";
 
   String resultSets() default "";
+
+  /**
+   * Comma separated names of the tables read by a select or written by other statements, used instead of the ones
+   * found in the SQL when the cache invalidation is {@link org.apache.ibatis.session.CacheInvalidation#TABLE}.
+   * @since 3.5.2
+   */
+  String tables() default "";
+
+  /**
+   * Whether a select looks up an entity by id, or an insert, update or delete changes the entity passed as
+   * parameter, through the entity cache of the namespace.
+   * @since 3.5.2
+   */
+  boolean entityCache() default false;
 }
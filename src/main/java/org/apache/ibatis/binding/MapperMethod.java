@@ -23,6 +23,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
@@ -55,6 +57,19 @@ public class MapperMethod {
   }
 
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      CompletableFuture<Object> future = new CompletableFuture<>();
+      try {
+        future.complete(executeForResult(sqlSession, args));
+      } catch (RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+      return future;
+    }
+    return executeForResult(sqlSession, args);
+  }
+
+  private Object executeForResult(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       case INSERT: {
@@ -303,6 +318,7 @@ public class MapperMethod {
      *
      */
     private final boolean returnsOptional;
+    private final boolean returnsFuture;
     private final Class<?> returnType;
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -311,6 +327,12 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = isFuture(resolvedReturnType);
+      if (returnsFuture) {
+        // an asynchronous method is handled like a method returning the result of the future
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
@@ -318,7 +340,7 @@ public class MapperMethod {
       } else {
         this.returnType = method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || returnsFuture && Void.class.equals(this.returnType);
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
@@ -338,6 +360,19 @@ public class MapperMethod {
       return paramNameResolver.getNamedParams(args);
     }
 
+    /**
+     * @return true if the method returns a {@link CompletableFuture} or a {@link CompletionStage} of its result
+     * @since 3.5.2
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
+    private static boolean isFuture(Type type) {
+      Type rawType = type instanceof ParameterizedType ? ((ParameterizedType) type).getRawType() : type;
+      return CompletableFuture.class.equals(rawType) || CompletionStage.class.equals(rawType);
+    }
+
     public boolean hasRowBounds() {
       return rowBoundsIndex != null;
     }
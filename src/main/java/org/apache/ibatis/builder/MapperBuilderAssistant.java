@@ -41,9 +41,12 @@ import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.mapping.SqlTables;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.CacheInvalidation;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -135,16 +138,29 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
-    Cache cache = new CacheBuilder(currentNamespace)
+    return useNewCache(new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
         .addDecorator(valueOrDefault(evictionClass, LruCache.class))
         .clearInterval(flushInterval)
         .size(size)
         .readWrite(readWrite)
         .blocking(blocking)
-        .properties(props)
+        .properties(props));
+  }
+
+  /**
+   * Builds the cache of the current namespace, for options that the other overload does not take.
+   *
+   * @param cacheBuilder a builder created for the current namespace
+   * @since 3.5.2
+   */
+  public Cache useNewCache(CacheBuilder cacheBuilder) {
+    Cache cache = cacheBuilder
+        .metrics(configuration.isCacheMetricsEnabled())
+        .metricsScope(metricsScope())
         .build();
     configuration.addCache(cache);
+    configuration.addEntityCacheBuilder(cache.getId(), cacheBuilder.derive(cache.getId() + ".entities"));
     currentCache = cache;
     return cache;
   }
@@ -307,6 +323,75 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String databaseId,
       LanguageDriver lang,
       String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      String tables) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, tables, false);
+  }
+
+  /**
+   * @param tables comma separated names of the tables read by a select or written by other statements,
+   *          used when the cache invalidation is {@link CacheInvalidation#TABLE}
+   * @param entityCache whether a select looks up an entity by id, or a write changes an entity, through the
+   *          entity cache of the namespace
+   * @since 3.5.2
+   */
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets,
+      String tables,
+      boolean entityCache) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -315,6 +400,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
     id = applyCurrentNamespace(id, false);
     boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
 
+    List<ResultMap> statementResultMaps = getStatementResultMaps(resultMap, resultType, id);
     MappedStatement.Builder statementBuilder = new MappedStatement.Builder(configuration, id, sqlSource, sqlCommandType)
         .resource(resource)
         .fetchSize(fetchSize)
@@ -327,22 +413,93 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .lang(lang)
         .resultOrdered(resultOrdered)
         .resultSets(resultSets)
-        .resultMaps(getStatementResultMaps(resultMap, resultType, id))
+        .resultMaps(statementResultMaps)
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
         .useCache(valueOrDefault(useCache, isSelect))
+        .tables(getStatementTables(tables, sqlSource, sqlCommandType))
         .cache(currentCache);
 
     ParameterMap statementParameterMap = getStatementParameterMap(parameterMap, parameterType, id);
     if (statementParameterMap != null) {
       statementBuilder.parameterMap(statementParameterMap);
     }
+    if (entityCache && currentCache != null) {
+      setStatementEntity(statementBuilder, id, isSelect, statementResultMaps, parameterType);
+    }
 
     MappedStatement statement = statementBuilder.build();
     configuration.addMappedStatement(statement);
+    if (isSelect && statement.getEntityType() != null) {
+      configuration.addEntityStatement(currentCache.getId(), statement);
+    }
     return statement;
   }
 
+  private void setStatementEntity(MappedStatement.Builder statementBuilder, String id, boolean isSelect,
+      List<ResultMap> resultMaps, Class<?> parameterType) {
+    if (!isSelect) {
+      if (parameterType != null) {
+        // keyed at runtime by the id properties of the select of the same type, which may not be parsed yet
+        statementBuilder.entity(parameterType, null);
+      }
+      // a write of an unknown entity clears the entity cache
+      return;
+    }
+    if (resultMaps.size() != 1 || getIdProperties(resultMaps.get(0)).isEmpty()) {
+      throw new BuilderException("Statement '" + id + "' uses the entity cache but does not map its result with "
+          + "a single result map declaring id properties.");
+    }
+    ResultMap entityMap = resultMaps.get(0);
+    MappedStatement entityStatement = configuration.getEntityStatement(currentCache.getId(), entityMap.getType());
+    if (entityStatement != null && !entityStatement.getResultMaps().get(0).getId().equals(entityMap.getId())) {
+      // entities are keyed by type and id, so another mapping of the type would share their entries
+      throw new BuilderException("Statement '" + id + "' maps entity " + entityMap.getType().getName()
+          + " with result map '" + entityMap.getId() + "', but statement '" + entityStatement.getId()
+          + "' maps it with '" + entityStatement.getResultMaps().get(0).getId() + "' in the entity cache of '"
+          + currentCache.getId() + "'.");
+    }
+    statementBuilder.entity(entityMap.getType(), getIdProperties(entityMap));
+    if (configuration.getEntityCache(currentCache.getId()) == null) {
+      CacheBuilder entityCacheBuilder = configuration.getEntityCacheBuilder(currentCache.getId());
+      if (entityCacheBuilder == null) {
+        // a cache added to the configuration directly
+        entityCacheBuilder = new CacheBuilder(currentCache.getId() + ".entities")
+            .readWrite(true)
+            .metrics(configuration.isCacheMetricsEnabled())
+            .metricsScope(metricsScope());
+      }
+      configuration.addEntityCache(currentCache.getId(), entityCacheBuilder.build());
+    }
+  }
+
+  private String metricsScope() {
+    // only reserved by configurations that register metrics
+    return configuration.isCacheMetricsEnabled() ? configuration.getCacheMetricsScope() : null;
+  }
+
+  private List<String> getIdProperties(ResultMap resultMap) {
+    List<String> idProperties = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getIdResultMappings()) {
+      if (resultMapping.getFlags().contains(ResultFlag.ID) && resultMapping.getProperty() != null) {
+        idProperties.add(resultMapping.getProperty());
+      }
+    }
+    return idProperties;
+  }
+
+  private Set<String> getStatementTables(String tables, SqlSource sqlSource, SqlCommandType sqlCommandType) {
+    if (tables != null) {
+      return SqlTables.of(tables);
+    }
+    if (configuration.getCacheInvalidation() == CacheInvalidation.TABLE
+        && (sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource)) {
+      // static SQL does not depend on the parameter
+      return SqlTables.parse(sqlSource.getBoundSql(null).getSql(), sqlCommandType);
+    }
+    return null;
+  }
+
   private <T> T valueOrDefault(T value, T defaultValue) {
     return value == null ? defaultValue : value;
   }
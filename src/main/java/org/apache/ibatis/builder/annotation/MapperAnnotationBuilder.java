@@ -34,6 +34,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import org.apache.ibatis.annotations.Arg;
 import org.apache.ibatis.annotations.CacheNamespace;
@@ -72,6 +74,7 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.FetchType;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -243,9 +246,30 @@ public class MapperAnnotationBuilder {
     CacheNamespace cacheDomain = type.getAnnotation(CacheNamespace.class);
     if (cacheDomain != null) {
       Integer size = cacheDomain.size() == 0 ? null : cacheDomain.size();
+      Long maxBytes = cacheDomain.maxBytes() == 0 ? null : cacheDomain.maxBytes();
+      Integer compressThreshold = cacheDomain.compressThreshold() == 0 ? null : cacheDomain.compressThreshold();
       Long flushInterval = cacheDomain.flushInterval() == 0 ? null : cacheDomain.flushInterval();
+      Long timeToLive = cacheDomain.timeToLive() == 0 ? null : cacheDomain.timeToLive();
+      Long timeToIdle = cacheDomain.timeToIdle() == 0 ? null : cacheDomain.timeToIdle();
+      Long refreshAfter = cacheDomain.refreshAfter() == 0 ? null : cacheDomain.refreshAfter();
       Properties props = convertToProperties(cacheDomain.properties());
-      mapperBuilderAssistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      mapperBuilderAssistant.useNewCache(new CacheBuilder(mapperBuilderAssistant.getCurrentNamespace())
+          .implementation(cacheDomain.implementation())
+          .addDecorator(cacheDomain.eviction())
+          .clearInterval(flushInterval)
+          .timeToLive(timeToLive)
+          .timeToIdle(timeToIdle)
+          .refreshAfter(refreshAfter)
+          .size(size)
+          .maxBytes(maxBytes)
+          .weigher(cacheDomain.weigher())
+          .compressThreshold(compressThreshold)
+          .readWrite(cacheDomain.readWrite())
+          .codec(cacheDomain.codec())
+          .blocking(cacheDomain.blocking())
+          .generational(cacheDomain.generational())
+          .snapshots(cacheDomain.snapshot() ? configuration.getCacheSnapshots() : null)
+          .properties(props));
     }
   }
 
@@ -451,7 +475,9 @@ public class MapperAnnotationBuilder {
           null,
           languageDriver,
           // ResultSets
-          options != null ? nullOrEmpty(options.resultSets()) : null);
+          options != null ? nullOrEmpty(options.resultSets()) : null,
+          options != null ? nullOrEmpty(options.tables()) : null,
+          options != null && options.entityCache());
     }
   }
 
@@ -481,8 +507,11 @@ public class MapperAnnotationBuilder {
   }
 
   private Class<?> getReturnType(Method method) {
+    return getReturnType(method, TypeParameterResolver.resolveReturnType(method, type));
+  }
+
+  private Class<?> getReturnType(Method method, Type resolvedReturnType) {
     Class<?> returnType = method.getReturnType();
-    Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
       if (returnType.isArray()) {
@@ -531,6 +560,9 @@ public class MapperAnnotationBuilder {
         if (returnTypeParameter instanceof Class<?>) {
           returnType = (Class<?>) returnTypeParameter;
         }
+      } else if (CompletableFuture.class.equals(rawType) || CompletionStage.class.equals(rawType)) {
+        // the result of an asynchronous method is the result of the future
+        returnType = getReturnType(method, parameterizedType.getActualTypeArguments()[0]);
       }
     }
 
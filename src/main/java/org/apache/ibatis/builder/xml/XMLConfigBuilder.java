@@ -18,11 +18,14 @@ package org.apache.ibatis.builder.xml;
 import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
+import java.util.concurrent.ThreadFactory;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.cache.invalidation.InvalidationPublisher;
 import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.executor.BatchFlushListener;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.io.Resources;
@@ -40,6 +43,7 @@ import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.AutoMappingUnknownColumnBehavior;
+import org.apache.ibatis.session.CacheInvalidation;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.LocalCacheScope;
@@ -406,6 +410,9 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
     //是否使用二级缓存
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+    configuration.setCacheMetricsEnabled(booleanValueOf(props.getProperty("cacheMetricsEnabled"), false));
+    configuration.setCachePutOnLoad(booleanValueOf(props.getProperty("cachePutOnLoad"), false));
+    configuration.setCacheSnapshotDirectory(props.getProperty("cacheSnapshotDirectory"));
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
     configuration.setLazyLoadingEnabled(booleanValueOf(props.getProperty("lazyLoadingEnabled"), false));
     configuration.setAggressiveLazyLoading(booleanValueOf(props.getProperty("aggressiveLazyLoading"), false));
@@ -415,9 +422,26 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+    configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), null));
+    configuration.setBatchFlushPendingSize(integerValueOf(props.getProperty("batchFlushPendingSize"), null));
+    configuration.setBatchRetainParameters(booleanValueOf(props.getProperty("batchRetainParameters"), true));
+    configuration.setBatchGrouping(booleanValueOf(props.getProperty("batchGrouping"), false));
+    configuration.setBatchGroupLimit(integerValueOf(props.getProperty("batchGroupLimit"), 32));
+    configuration.setBatchInsertRows(integerValueOf(props.getProperty("batchInsertRows"), null));
+    configuration.setBatchInsertMaxParameters(integerValueOf(props.getProperty("batchInsertMaxParameters"), 2000));
+    configuration.setBatchFlushListener((BatchFlushListener) createInstance(props.getProperty("batchFlushListener")));
+    configuration.setAsyncThreadFactory((ThreadFactory) createInstance(props.getProperty("asyncThreadFactory")));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), null));
+    configuration.setLocalCacheMaxBytes(longValueOf(props.getProperty("localCacheMaxBytes"), null));
+    configuration.setCacheInvalidation(CacheInvalidation.valueOf(props.getProperty("cacheInvalidation", "NAMESPACE")));
+    InvalidationPublisher invalidationPublisher = (InvalidationPublisher) createInstance(props.getProperty("cacheInvalidationPublisher"));
+    if (invalidationPublisher != null) {
+      invalidationPublisher.setProperties(configuration.getVariables());
+    }
+    configuration.setCacheInvalidationPublisher(invalidationPublisher);
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
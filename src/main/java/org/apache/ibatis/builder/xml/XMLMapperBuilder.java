@@ -33,8 +33,11 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.weigher.Weigher;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Discriminator;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
@@ -342,9 +345,28 @@ public class XMLMapperBuilder extends BaseBuilder {
       Long flushInterval = context.getLongAttribute("flushInterval");
       Integer size = context.getIntAttribute("size");
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
+      Class<? extends CacheCodec> codecClass = typeAliasRegistry.resolveAlias(context.getStringAttribute("codec"));
+      Class<? extends Weigher> weigherClass = typeAliasRegistry.resolveAlias(context.getStringAttribute("weigher"));
       boolean blocking = context.getBooleanAttribute("blocking", false);
+      boolean snapshot = context.getBooleanAttribute("snapshot", false);
       Properties props = context.getChildrenAsProperties();
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(new CacheBuilder(builderAssistant.getCurrentNamespace())
+          .implementation(typeClass)
+          .addDecorator(evictionClass)
+          .clearInterval(flushInterval)
+          .timeToLive(context.getLongAttribute("timeToLive"))
+          .timeToIdle(context.getLongAttribute("timeToIdle"))
+          .refreshAfter(context.getLongAttribute("refreshAfter"))
+          .size(size)
+          .maxBytes(context.getLongAttribute("maxBytes"))
+          .weigher(weigherClass)
+          .compressThreshold(context.getIntAttribute("compressThreshold"))
+          .readWrite(readWrite)
+          .codec(codecClass)
+          .blocking(blocking)
+          .generational(context.getBooleanAttribute("generational", false))
+          .snapshots(snapshot ? configuration.getCacheSnapshots() : null)
+          .properties(props));
     }
   }
 
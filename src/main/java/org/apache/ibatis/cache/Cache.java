@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 /**
  * SPI for cache providers.
@@ -80,11 +84,105 @@ public interface Cache {
    */
   Object removeObject(Object key);
 
+  /**
+   * Removes the entry of the key only if it still holds the given value, so that a caller that read a stale value
+   * does not remove a value put by another thread since.
+   * <p>
+   * The default implementation compares the value read with {@link #getObject(Object)} and then removes the key,
+   * which is only atomic for callers that lock the whole cache. Thread safe base caches override it with an atomic
+   * removal, and decorators that may sit between them and the caller pass it on to their delegate.
+   *
+   * @param key The key
+   * @param value The value the entry is expected to hold
+   * @return {@code true} if the entry was removed
+   * @since 3.5.2
+   */
+  default boolean removeObject(Object key, Object value) {
+    Object current = getObject(key);
+    if (current == null || !current.equals(value)) {
+      return false;
+    }
+    removeObject(key);
+    return true;
+  }
+
   /**
    * Clears this cache instance.
    */
   void clear();
 
+  /**
+   * Puts several entries at once. {@code null} values are put like in {@link #putObject(Object, Object)}.
+   * <p>
+   * Decorators should override it to do their work once for the whole batch (e.g. take a lock once) and pass the
+   * batch on to their delegate.
+   *
+   * @param entries The keys and the results of their selects
+   * @since 3.5.2
+   */
+  default void putAll(Map<?, ?> entries) {
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Gets several entries at once.
+   *
+   * @param keys The keys
+   * @return The objects stored in the cache, by key. Keys that are not in the cache are left out.
+   * @since 3.5.2
+   */
+  default Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<>();
+    for (Object key : keys) {
+      Object value = getObject(key);
+      if (value != null) {
+        values.put(key, value);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Gets an entry, loading and putting it when it is not in the cache.
+   * <p>
+   * The default implementation calls {@link #getObject(Object)} and, on a miss, the loader and
+   * {@link #putObject(Object, Object)}. When the loader fails, {@link #removeObject(Object)} is called instead of the
+   * put so that any lock taken on the key is released. Decorators should override it to do their work on the way
+   * down and pass the loader on to their delegate, so that a miss goes through them only once.
+   *
+   * @param key The key
+   * @param loader Returns the result of the select for the key
+   * @return The object stored in the cache, or the loaded one
+   * @since 3.5.2
+   */
+  default Object getOrLoad(Object key, Function<Object, ?> loader) {
+    Object value = getObject(key);
+    if (value == null) {
+      try {
+        value = loader.apply(key);
+      } catch (RuntimeException e) {
+        removeObject(key);
+        throw e;
+      }
+      putObject(key, value);
+    }
+    return value;
+  }
+
+  /**
+   * Removes several entries at once, with the same meaning as {@link #removeObject(Object)}.
+   *
+   * @param keys The keys
+   * @since 3.5.2
+   */
+  default void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      removeObject(key);
+    }
+  }
+
   /**
    * Optional. This method is not called by the core.
    *
@@ -101,4 +199,18 @@ public interface Cache {
    */
   ReadWriteLock getReadWriteLock();
 
+  /**
+   * Tells whether this cache can be safely used by several threads at once without external synchronization.
+   * <p>
+   * Decorators should return {@code true} only when they are thread safe themselves and so is their delegate.
+   * When every layer built by the {@link org.apache.ibatis.mapping.CacheBuilder} is thread safe,
+   * the {@link org.apache.ibatis.cache.decorators.SynchronizedCache} wrapper is not applied.
+   *
+   * @return {@code true} if no external synchronization is needed
+   * @since 3.5.2
+   */
+  default boolean isThreadSafe() {
+    return false;
+  }
+
 }
@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -25,51 +24,73 @@ import org.apache.ibatis.reflection.ArrayUtil;
 /**
  *
  * MyBatis 提供了CacheKey类来表示缓存项的key，在一个CacheKey对象中可以封装多个影响缓存项的因素。
+ * <p>
+ * Values are kept in an array sized up front and the hash code of each is mixed into a 64-bit hash as it is added,
+ * so two keys are only compared value by value when their hashes match. The hash is built from the 32-bit hash codes
+ * of the values, so values with equal hash codes are only told apart by that comparison. The key keeps every value
+ * it is updated with, including the full SQL text.
  *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -2836432318390442383L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final long DEFAULT_HASH = 0x9E3779B97F4A7C15L;
+  private static final long MULTIPLIER = 0xC6A4A7935BD1E995L;
 
-  private final int multiplier;
-  private int hashcode;
-  private long checksum;
+  private long hash;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdates the number of updates the key is expected to receive, used to size its storage
+   * @since 3.5.2
+   */
+  public CacheKey(int expectedUpdates) {
+    this.hash = DEFAULT_HASH;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = new Object[Math.max(expectedUpdates, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
+  }
+
+  /**
+   * @param index the position of the object among those this key was updated with
+   * @return the object, e.g. the mapped statement id at position 0 for keys made by an executor
+   * @since 3.5.2
+   */
+  public Object getUpdate(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Count: " + count);
+    }
+    return updateList[index];
   }
 
   public void update(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
-
-    hashcode = multiplier * hashcode + baseHashCode;
+    hash = mix((hash ^ baseHashCode) * MULTIPLIER + count);
 
-    updateList.add(object);
+    if (count == updateList.length) {
+      updateList = Arrays.copyOf(updateList, count << 1);
+    }
+    updateList[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -89,19 +110,17 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
+    // parameter values come last and are the most likely to differ
+    for (int i = count - 1; i >= 0; i--) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
       if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
@@ -111,23 +130,31 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   @Override
   public String toString() {
     StringJoiner returnValue = new StringJoiner(":");
-    returnValue.add(String.valueOf(hashcode));
-    returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    returnValue.add(String.valueOf(hashCode()));
+    returnValue.add(Long.toHexString(hash));
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(updateList[i]));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateList = updateList.clone();
     return clonedCacheKey;
   }
 
+  private static long mix(long value) {
+    value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+    value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+    return value ^ (value >>> 33);
+  }
+
 }
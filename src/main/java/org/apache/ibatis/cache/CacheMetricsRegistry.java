@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.MetricsCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Keeps the {@link MetricsCache} of every cache built with metrics enabled, by scope and cache id, and registers each
+ * one in the platform MBean server as {@code org.apache.ibatis:type=Cache,scope="<scope>",id="<cache id>"}.
+ * <p>
+ * A scope keeps the caches of one configuration apart from those of the others, which may use the same ids. Each
+ * configuration reserves its own scope, named after its environment, and unregisters it when it is closed.
+ * A cache registered again under the same scope and id replaces the previous one.
+ *
+ * @since 3.5.2
+ */
+public final class CacheMetricsRegistry {
+
+  private static final Log log = LogFactory.getLog(CacheMetricsRegistry.class);
+
+  private static final Map<String, Map<String, MetricsCache>> scopes = new ConcurrentHashMap<>();
+
+  private CacheMetricsRegistry() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * @param name the preferred name of the scope, e.g. an environment id
+   * @return the name if no other scope uses it, otherwise the name followed by a number that makes it unique
+   */
+  public static String reserveScope(String name) {
+    String scope = name;
+    for (int i = 2; scopes.putIfAbsent(scope, new ConcurrentHashMap<>()) != null; i++) {
+      scope = name + "-" + i;
+    }
+    return scope;
+  }
+
+  public static void register(String scope, MetricsCache cache) {
+    scopes.computeIfAbsent(scope, k -> new ConcurrentHashMap<>()).put(cache.getId(), cache);
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = objectName(scope, cache.getId());
+      synchronized (CacheMetricsRegistry.class) {
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+        server.registerMBean(cache, name);
+      }
+    } catch (Exception | LinkageError e) {
+      log.warn("Could not register the metrics of cache " + cache.getId() + " in JMX. Cause: " + e);
+    }
+  }
+
+  public static void unregister(String scope, String id) {
+    Map<String, MetricsCache> caches = scopes.get(scope);
+    if (caches == null || caches.remove(id) == null) {
+      return;
+    }
+    unregisterMBean(scope, id);
+  }
+
+  /**
+   * Unregisters every cache of the scope and releases its name.
+   */
+  public static void unregisterScope(String scope) {
+    Map<String, MetricsCache> caches = scopes.remove(scope);
+    if (caches == null) {
+      return;
+    }
+    for (String id : caches.keySet()) {
+      unregisterMBean(scope, id);
+    }
+  }
+
+  public static MetricsCache getMetrics(String scope, String id) {
+    Map<String, MetricsCache> caches = scopes.get(scope);
+    return caches == null ? null : caches.get(id);
+  }
+
+  public static Collection<MetricsCache> getAllMetrics() {
+    List<MetricsCache> metrics = new ArrayList<>();
+    for (Map<String, MetricsCache> caches : scopes.values()) {
+      metrics.addAll(caches.values());
+    }
+    return Collections.unmodifiableCollection(metrics);
+  }
+
+  static ObjectName objectName(String scope, String id) throws Exception {
+    return new ObjectName("org.apache.ibatis:type=Cache,scope=" + ObjectName.quote(scope) + ",id=" + ObjectName.quote(id));
+  }
+
+  private static void unregisterMBean(String scope, String id) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = objectName(scope, id);
+      synchronized (CacheMetricsRegistry.class) {
+        if (server.isRegistered(name)) {
+          server.unregisterMBean(name);
+        }
+      }
+    } catch (Exception | LinkageError e) {
+      log.warn("Could not unregister the metrics of cache " + id + " from JMX. Cause: " + e);
+    }
+  }
+
+}
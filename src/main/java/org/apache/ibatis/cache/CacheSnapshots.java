@@ -0,0 +1,266 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Saves the contents of second level caches to files and reads them back, so that a restarted application does not
+ * start with empty caches.
+ * <p>
+ * Only the caches declared with {@code snapshot="true"} are saved, one file per cache in the
+ * existing {@code cacheSnapshotDirectory}, when the configuration is closed or when {@link #save()} is called. They are
+ * read back with memory mapped I/O when the configuration is started, and each file is deleted once read.
+ * <p>
+ * Every entry carries a fingerprint of the mapped statement that produced it: its id, static SQL, result type and
+ * result mappings. Entries whose statement is gone or whose fingerprint changed are dropped. Entries keyed by table
+ * versions are not saved, since the versions start again from zero. Keys and values must be serializable. Changes
+ * made to the database while the application was down are not detected.
+ *
+ * @since 3.5.2
+ */
+public class CacheSnapshots {
+
+  private static final Log log = LogFactory.getLog(CacheSnapshots.class);
+
+  private static final int MAGIC = 0x4d424353;
+  private static final int FORMAT_VERSION = 1;
+  private static final String FILE_EXTENSION = ".snapshot";
+
+  private final Configuration configuration;
+  private final List<Snapshot> snapshots = new CopyOnWriteArrayList<>();
+  private final JavaSerializationCodec codec = new JavaSerializationCodec();
+
+  public CacheSnapshots(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * @return whether a snapshot directory is configured
+   */
+  public boolean isEnabled() {
+    return configuration.getCacheSnapshotDirectory() != null;
+  }
+
+  /**
+   * @param cache the cache to save and restore, read and written as callers see it
+   * @param keys the decorator that tracks the keys held by the cache
+   */
+  public void register(Cache cache, SnapshotCache keys) {
+    snapshots.add(new Snapshot(cache, keys));
+  }
+
+  /**
+   * Reads back the snapshot files of the registered caches.
+   */
+  public synchronized void restore() {
+    if (configuration.getCacheSnapshotDirectory() == null || snapshots.isEmpty()) {
+      return;
+    }
+    for (Snapshot snapshot : snapshots) {
+      Path file = fileOf(snapshot.cache);
+      if (Files.exists(file)) {
+        try {
+          int restored = read(file, snapshot.cache);
+          if (log.isDebugEnabled()) {
+            log.debug("Restored " + restored + " entries of cache " + snapshot.cache.getId() + " from " + file);
+          }
+          Files.delete(file);
+        } catch (Exception e) {
+          log.warn("Could not restore cache " + snapshot.cache.getId() + " from " + file + ". Cause: " + e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the current contents of every registered cache to its snapshot file.
+   */
+  public synchronized void save() {
+    if (configuration.getCacheSnapshotDirectory() == null) {
+      return;
+    }
+    for (Snapshot snapshot : snapshots) {
+      Path file = fileOf(snapshot.cache);
+      try {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        int saved = write(temporary, snapshot);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        if (log.isDebugEnabled()) {
+          log.debug("Saved " + saved + " entries of cache " + snapshot.cache.getId() + " to " + file);
+        }
+      } catch (Exception e) {
+        log.warn("Could not save cache " + snapshot.cache.getId() + " to " + file + ". Cause: " + e);
+      }
+    }
+  }
+
+  private int write(Path file, Snapshot snapshot) throws IOException {
+    Map<String, Long> fingerprints = new HashMap<>();
+    int saved = 0;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      for (Object key : new ArrayList<>(snapshot.keys.getKeys())) {
+        Long fingerprint = fingerprints.computeIfAbsent(statementId(key), this::fingerprint);
+        if (fingerprint == null) {
+          continue;
+        }
+        Object value = snapshot.cache.getObject(key);
+        if (value == null) {
+          // dropped by a cache that does not report its evictions
+          snapshot.keys.forget(key);
+          continue;
+        }
+        byte[] keyBytes;
+        byte[] valueBytes;
+        try {
+          keyBytes = codec.encode(key);
+          valueBytes = codec.encode(value);
+        } catch (CacheException e) {
+          // not serializable
+          continue;
+        }
+        out.writeLong(fingerprint);
+        out.writeInt(keyBytes.length);
+        out.write(keyBytes);
+        out.writeInt(valueBytes.length);
+        out.write(valueBytes);
+        saved++;
+      }
+    }
+    return saved;
+  }
+
+  private int read(Path file, Cache cache) throws IOException {
+    Map<String, Long> fingerprints = new HashMap<>();
+    int restored = 0;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new CacheException("Unknown cache snapshot format");
+      }
+      while (buffer.hasRemaining()) {
+        long fingerprint;
+        byte[] keyBytes;
+        byte[] valueBytes;
+        try {
+          fingerprint = buffer.getLong();
+          keyBytes = new byte[buffer.getInt()];
+          buffer.get(keyBytes);
+          valueBytes = new byte[buffer.getInt()];
+          buffer.get(valueBytes);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+          throw new CacheException("Truncated cache snapshot after " + restored + " entries", e);
+        }
+        Object key = codec.decode(keyBytes);
+        Long current = fingerprints.computeIfAbsent(statementId(key), this::fingerprint);
+        if (current != null && current == fingerprint) {
+          cache.putObject(key, codec.decode(valueBytes));
+          restored++;
+        }
+      }
+    }
+    return restored;
+  }
+
+  private Path fileOf(Cache cache) {
+    String name = cache.getId().replaceAll("[^\\w.$-]", "_");
+    return Paths.get(configuration.getCacheSnapshotDirectory(), name + FILE_EXTENSION);
+  }
+
+  private static String statementId(Object key) {
+    // keys of table invalidation wrap the executor's key and are not saved
+    Object first = key instanceof CacheKey && ((CacheKey) key).getUpdateCount() > 0 ? ((CacheKey) key).getUpdate(0) : null;
+    return first instanceof String ? (String) first : "";
+  }
+
+  private Long fingerprint(String statementId) {
+    if (!configuration.hasStatement(statementId, false)) {
+      return null;
+    }
+    MappedStatement ms = configuration.getMappedStatement(statementId, false);
+    StringBuilder description = new StringBuilder(ms.getId());
+    if (ms.getSqlSource() instanceof RawSqlSource || ms.getSqlSource() instanceof StaticSqlSource) {
+      description.append('|').append(ms.getSqlSource().getBoundSql(null).getSql());
+    }
+    Set<String> described = new HashSet<>();
+    for (ResultMap resultMap : ms.getResultMaps()) {
+      describe(resultMap, description, described);
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < description.length(); i++) {
+      hash = (hash ^ description.charAt(i)) * 0x100000001b3L;
+    }
+    return hash;
+  }
+
+  private void describe(ResultMap resultMap, StringBuilder description, Set<String> described) {
+    if (!described.add(resultMap.getId())) {
+      return;
+    }
+    description.append('|').append(resultMap.getId()).append(':').append(resultMap.getType().getName());
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      description.append(',').append(resultMapping.getProperty())
+          .append('=').append(resultMapping.getColumn())
+          .append(':').append(resultMapping.getJavaType() == null ? "" : resultMapping.getJavaType().getName())
+          .append(':').append(resultMapping.getNestedResultMapId())
+          .append(':').append(resultMapping.getNestedQueryId());
+      if (resultMapping.getNestedResultMapId() != null && configuration.hasResultMap(resultMapping.getNestedResultMapId())) {
+        describe(configuration.getResultMap(resultMapping.getNestedResultMapId()), description, described);
+      }
+    }
+  }
+
+  private static class Snapshot {
+    private final Cache cache;
+    private final SnapshotCache keys;
+
+    Snapshot(Cache cache, SnapshotCache keys) {
+      this.cache = cache;
+      this.keys = keys;
+    }
+  }
+
+}
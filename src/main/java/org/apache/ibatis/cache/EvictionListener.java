@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Told about the keys a cache drops on its own, to make room or because they expired, as opposed to the keys its
+ * callers remove. The caches that evict entries take one through a {@code setEvictionListener} method, which
+ * {@link org.apache.ibatis.mapping.CacheBuilder} calls on every standard cache it builds.
+ *
+ * @since 3.5.2
+ */
+@FunctionalInterface
+public interface EvictionListener {
+
+  /**
+   * Called after the entry of the key has been removed, by the thread that removed it.
+   *
+   * @param key the key of the evicted entry, as seen by the cache that evicted it
+   */
+  void evicted(Object key);
+
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version numbers of the tables whose results are held by second level caches, used when the cache invalidation is
+ * {@link org.apache.ibatis.session.CacheInvalidation#TABLE}.
+ * <p>
+ * The versions of the tables a select reads are folded into its cache key, so committing a write to a table only
+ * needs to increment the version of that table: cached results that read it are never found again and age out
+ * through the normal eviction of their caches, whatever namespace they belong to. Writes to unknown tables
+ * increment a global version that is part of every key.
+ *
+ * @since 3.5.2
+ */
+public class TableVersions {
+
+  /**
+   * Stands for the tables of a statement whose tables are not known.
+   */
+  public static final String ALL_TABLES = "*";
+
+  private final AtomicLong globalVersion = new AtomicLong();
+  private final AtomicLong anyVersion = new AtomicLong();
+  private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+  /**
+   * @param key the cache key of a select
+   * @param tables the tables read by the select, empty if they are not known
+   * @return a cache key that changes whenever a write to one of the tables (or to any table if they are not known)
+   *         is committed
+   */
+  public CacheKey versionedKey(CacheKey key, Collection<String> tables) {
+    CacheKey versionedKey = new CacheKey(tables.size() * 2 + 2);
+    versionedKey.update(key);
+    versionedKey.update(globalVersion.get());
+    if (tables.isEmpty()) {
+      versionedKey.update(anyVersion.get());
+    }
+    for (String table : tables) {
+      AtomicLong version = versions.get(table);
+      versionedKey.update(table);
+      versionedKey.update(version == null ? 0L : version.get());
+    }
+    return versionedKey;
+  }
+
+  /**
+   * Invalidates the cached results read from the given tables.
+   *
+   * @param tables the written tables, or {@link #ALL_TABLES}
+   */
+  public void invalidate(Collection<String> tables) {
+    anyVersion.incrementAndGet();
+    if (tables.contains(ALL_TABLES)) {
+      globalVersion.incrementAndGet();
+      return;
+    }
+    for (String table : tables) {
+      versions.computeIfAbsent(table, k -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  /**
+   * @param table a table name, or {@link #ALL_TABLES} for the global version
+   * @return the number of committed writes to the table
+   */
+  public long getVersion(String table) {
+    if (ALL_TABLES.equals(table)) {
+      return globalVersion.get();
+    }
+    AtomicLong version = versions.get(table);
+    return version == null ? 0L : version.get();
+  }
+
+}
@@ -17,8 +17,10 @@ package org.apache.ibatis.cache;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.invalidation.InvalidationPublisher;
 
 /**
  *
@@ -29,6 +31,19 @@ import org.apache.ibatis.cache.decorators.TransactionalCache;
 public class TransactionalCacheManager {
 
   private final Map<Cache, TransactionalCache> transactionalCaches = new HashMap<>();
+  private final InvalidationPublisher publisher;
+
+  public TransactionalCacheManager() {
+    this(null);
+  }
+
+  /**
+   * @param publisher sends the committed clears to the other nodes, or {@code null}
+   * @since 3.5.2
+   */
+  public TransactionalCacheManager(InvalidationPublisher publisher) {
+    this.publisher = publisher;
+  }
 
   public void clear(Cache cache) {
     getTransactionalCache(cache).clear();
@@ -48,6 +63,15 @@ public class TransactionalCacheManager {
     getTransactionalCache(cache).putObject(key, value);
   }
 
+  /**
+   * Gets an entry, loading it on a miss, with the semantics of {@link TransactionalCache#getOrLoad}.
+   *
+   * @since 3.5.2
+   */
+  public Object getOrLoad(Cache cache, CacheKey key, Function<Object, ?> loader) {
+    return getTransactionalCache(cache).getOrLoad(key, loader);
+  }
+
   public void commit() {
     for (TransactionalCache txCache : transactionalCaches.values()) {
       txCache.commit();
@@ -76,7 +100,7 @@ public class TransactionalCacheManager {
      *       return newTransactionalCache;
      *     }
      */
-    return transactionalCaches.computeIfAbsent(cache, TransactionalCache::new);
+    return transactionalCaches.computeIfAbsent(cache, k -> new TransactionalCache(k, publisher));
   }
 
 }
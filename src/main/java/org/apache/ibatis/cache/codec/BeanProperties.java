@@ -0,0 +1,156 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * The readable and writable properties of a result object class, as found by its {@link Reflector}, in a stable
+ * order. Classes without a default constructor, classes with an instance field that is not such a property, platform
+ * classes and lazy loading proxies are not considered beans, so that copying their properties never drops state.
+ * The properties are kept in a {@link ClassValue}, which does not keep the class loader of the class reachable.
+ */
+final class BeanProperties {
+
+  private static final ClassValue<BeanProperties> beans = new ClassValue<BeanProperties>() {
+    @Override
+    protected BeanProperties computeValue(Class<?> type) {
+      return resolve(type);
+    }
+  };
+  private static final BeanProperties NONE = new BeanProperties(null, new Invoker[0], new Invoker[0]);
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Constructor<?> constructor;
+  private final Invoker[] getters;
+  private final Invoker[] setters;
+
+  private BeanProperties(Constructor<?> constructor, Invoker[] getters, Invoker[] setters) {
+    this.constructor = constructor;
+    this.getters = getters;
+    this.setters = setters;
+  }
+
+  /**
+   * @return the properties of the given class, or null if it is not a bean
+   */
+  static BeanProperties forClass(Class<?> type) {
+    BeanProperties properties = beans.get(type);
+    return properties == NONE ? null : properties;
+  }
+
+  int size() {
+    return getters.length;
+  }
+
+  Object newInstance() {
+    try {
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Error instantiating " + constructor.getDeclaringClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  Object get(Object bean, int property) {
+    try {
+      return getters[property].invoke(bean, NO_ARGUMENTS);
+    } catch (Exception e) {
+      throw new CacheException("Error reading a property of " + bean.getClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  void set(Object bean, int property, Object value) {
+    try {
+      setters[property].invoke(bean, new Object[] { value });
+    } catch (Exception e) {
+      throw new CacheException("Error writing a property of " + bean.getClass() + ".  Cause: " + e, e);
+    }
+  }
+
+  private static BeanProperties resolve(Class<?> type) {
+    if (type.isInterface() || type.isArray() || type.isEnum() || type.isPrimitive()
+        || Modifier.isAbstract(type.getModifiers()) || isPlatformClass(type)
+        || WriteReplaceInterface.class.isAssignableFrom(type)) {
+      return NONE;
+    }
+    Reflector reflector = new Reflector(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return NONE;
+    }
+    List<String> names = new ArrayList<>();
+    for (String name : reflector.getGetablePropertyNames()) {
+      if (reflector.hasSetter(name) && !isStaticField(type, name)) {
+        names.add(name);
+      }
+    }
+    if (!coversInstanceFields(type, names)) {
+      return NONE;
+    }
+    names.sort(null);
+    Invoker[] getters = new Invoker[names.size()];
+    Invoker[] setters = new Invoker[names.size()];
+    for (int i = 0; i < getters.length; i++) {
+      getters[i] = reflector.getGetInvoker(names.get(i));
+      setters[i] = reflector.getSetInvoker(names.get(i));
+    }
+    return new BeanProperties(reflector.getDefaultConstructor(), getters, setters);
+  }
+
+  private static boolean isPlatformClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+  }
+
+  private static boolean coversInstanceFields(Class<?> type, List<String> names) {
+    Set<String> fieldNames = new HashSet<>();
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+          continue;
+        }
+        // a field hidden by a subclass field of the same name is not reachable through the property
+        if (!names.contains(field.getName()) || !fieldNames.add(field.getName())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean isStaticField(Class<?> type, String name) {
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      Field field = Arrays.stream(current.getDeclaredFields())
+          .filter(f -> f.getName().equals(name)).findFirst().orElse(null);
+      if (field != null) {
+        return Modifier.isStatic(field.getModifiers());
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,515 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Compact binary codec for result objects.
+ * <p>
+ * Unlike Java serialization there are no stream headers nor class descriptors. Common value types have their own one
+ * byte tag, beans are written property by property following their {@link org.apache.ibatis.reflection.Reflector},
+ * and a class name is written at most once per value. Classes registered with {@link #register(Class...)} are
+ * written as a small number instead of a name; subclasses can register their result types in their constructor.
+ * Shared references and cycles are preserved. Values the codec does not know how to walk are embedded using Java
+ * serialization.
+ * <p>
+ * Beans need a default constructor and a readable and writable property for each instance field. Other objects are
+ * embedded using Java serialization, so they must be serializable.
+ *
+ * @since 3.5.2
+ */
+public class BinaryCodec implements CacheCodec {
+
+  private static final int NULL = 0;
+  private static final int REFERENCE = 1;
+  private static final int TRUE = 2;
+  private static final int FALSE = 3;
+  private static final int BYTE = 4;
+  private static final int SHORT = 5;
+  private static final int CHARACTER = 6;
+  private static final int INTEGER = 7;
+  private static final int LONG = 8;
+  private static final int FLOAT = 9;
+  private static final int DOUBLE = 10;
+  private static final int STRING = 11;
+  private static final int BIG_INTEGER = 12;
+  private static final int BIG_DECIMAL = 13;
+  private static final int DATE = 14;
+  private static final int SQL_DATE = 15;
+  private static final int SQL_TIME = 16;
+  private static final int SQL_TIMESTAMP = 17;
+  private static final int BYTES = 18;
+  private static final int ENUM = 19;
+  private static final int ARRAY = 20;
+  private static final int COLLECTION = 21;
+  private static final int MAP = 22;
+  private static final int BEAN = 23;
+  private static final int SERIALIZED = 24;
+
+  private final JavaSerializationCodec serializationCodec = new JavaSerializationCodec();
+  private final Map<Class<?>, Integer> registeredIds = new ConcurrentHashMap<>();
+  private final List<Class<?>> registeredClasses = new ArrayList<>();
+
+  /**
+   * Registers classes so that they are written as a number rather than by name.
+   * Must be called before the codec is used, in the same order for every instance.
+   *
+   * @param types classes to register
+   */
+  public synchronized void register(Class<?>... types) {
+    for (Class<?> type : types) {
+      if (!registeredIds.containsKey(type)) {
+        registeredIds.put(type, registeredClasses.size());
+        registeredClasses.add(type);
+      }
+    }
+  }
+
+  @Override
+  public byte[] encode(Object value) {
+    Writer writer = new Writer();
+    writer.writeValue(value);
+    return writer.toByteArray();
+  }
+
+  @Override
+  public Object decode(Object encoded) {
+    return new Reader((byte[]) encoded).readValue();
+  }
+
+  private class Writer {
+    private byte[] buffer = new byte[256];
+    private int position;
+    private final Map<Object, Integer> references = new IdentityHashMap<>();
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    void writeValue(Object value) {
+      if (value == null) {
+        writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeByte(INTEGER);
+        writeVarLong((Integer) value);
+      } else if (type == Long.class) {
+        writeByte(LONG);
+        writeVarLong((Long) value);
+      } else if (type == Boolean.class) {
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Double.class) {
+        writeByte(DOUBLE);
+        writeFixedLong(Double.doubleToRawLongBits((Double) value));
+      } else if (type == BigDecimal.class) {
+        writeByte(BIG_DECIMAL);
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+        writeVarLong(((BigDecimal) value).scale());
+      } else if (type == java.sql.Timestamp.class) {
+        writeByte(SQL_TIMESTAMP);
+        writeVarLong(((Date) value).getTime());
+        writeVarLong(((java.sql.Timestamp) value).getNanos());
+      } else if (type == Date.class || type == java.sql.Date.class || type == java.sql.Time.class) {
+        writeByte(type == Date.class ? DATE : type == java.sql.Date.class ? SQL_DATE : SQL_TIME);
+        writeVarLong(((Date) value).getTime());
+      } else if (type == Short.class) {
+        writeByte(SHORT);
+        writeVarLong((Short) value);
+      } else if (type == Byte.class) {
+        writeByte(BYTE);
+        writeByte((Byte) value);
+      } else if (type == Character.class) {
+        writeByte(CHARACTER);
+        writeVarLong((Character) value);
+      } else if (type == Float.class) {
+        writeByte(FLOAT);
+        writeFixedInt(Float.floatToRawIntBits((Float) value));
+      } else if (type == BigInteger.class) {
+        writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == byte[].class) {
+        writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeVarInt(((Enum<?>) value).ordinal());
+      } else if (!writeReference(value)) {
+        writeObject(value, type);
+      }
+    }
+
+    private void writeObject(Object value, Class<?> type) {
+      BeanProperties bean;
+      if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        writeByte(ARRAY);
+        writeClass(type.getComponentType());
+        int length = Array.getLength(value);
+        writeVarInt(length);
+        for (int i = 0; i < length; i++) {
+          writeValue(Array.get(value, i));
+        }
+      } else if (value instanceof Collection && !(value instanceof SortedSet)) {
+        writeByte(COLLECTION);
+        writeClass(type);
+        writeVarInt(((Collection<?>) value).size());
+        for (Object element : (Collection<?>) value) {
+          writeValue(element);
+        }
+      } else if (value instanceof Map && !(value instanceof SortedMap)) {
+        writeByte(MAP);
+        writeClass(type);
+        writeVarInt(((Map<?, ?>) value).size());
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+          writeValue(entry.getKey());
+          writeValue(entry.getValue());
+        }
+      } else if ((bean = BeanProperties.forClass(type)) != null) {
+        writeByte(BEAN);
+        writeClass(type);
+        for (int i = 0; i < bean.size(); i++) {
+          writeValue(bean.get(value, i));
+        }
+      } else {
+        writeByte(SERIALIZED);
+        writeBytes(serializationCodec.encode(value));
+      }
+    }
+
+    private boolean writeReference(Object value) {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        writeByte(REFERENCE);
+        writeVarInt(reference);
+        return true;
+      }
+      references.put(value, references.size());
+      return false;
+    }
+
+    private void writeClass(Class<?> type) {
+      Integer registered = registeredIds.get(type);
+      if (registered != null) {
+        writeVarInt(registered << 1 | 1);
+        return;
+      }
+      Integer local = classes.get(type);
+      if (local != null) {
+        writeVarInt((local + 1) << 1);
+        return;
+      }
+      classes.put(type, classes.size());
+      writeVarInt(0);
+      writeString(type.getName());
+    }
+
+    private void writeString(String value) {
+      writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarInt(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    private void writeVarLong(long value) {
+      long zigzag = (value << 1) ^ (value >> 63);
+      while ((zigzag & ~0x7FL) != 0) {
+        writeByte((int) ((zigzag & 0x7F) | 0x80));
+        zigzag >>>= 7;
+      }
+      writeByte((int) zigzag);
+    }
+
+    private void writeVarInt(int value) {
+      while ((value & ~0x7F) != 0) {
+        writeByte((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      writeByte(value);
+    }
+
+    private void writeFixedInt(int value) {
+      ensureCapacity(4);
+      for (int i = 0; i < 4; i++) {
+        buffer[position++] = (byte) (value >>> (i << 3));
+      }
+    }
+
+    private void writeFixedLong(long value) {
+      ensureCapacity(8);
+      for (int i = 0; i < 8; i++) {
+        buffer[position++] = (byte) (value >>> (i << 3));
+      }
+    }
+
+    private void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        byte[] grown = new byte[Math.max(buffer.length << 1, position + length)];
+        System.arraycopy(buffer, 0, grown, 0, position);
+        buffer = grown;
+      }
+    }
+
+    byte[] toByteArray() {
+      byte[] bytes = new byte[position];
+      System.arraycopy(buffer, 0, bytes, 0, position);
+      return bytes;
+    }
+  }
+
+  private class Reader {
+    private final byte[] buffer;
+    private int position;
+    private final List<Object> references = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    Object readValue() {
+      int tag = buffer[position++];
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(readVarInt());
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case BYTE:
+          return buffer[position++];
+        case SHORT:
+          return (short) readVarLong();
+        case CHARACTER:
+          return (char) readVarLong();
+        case INTEGER:
+          return (int) readVarLong();
+        case LONG:
+          return readVarLong();
+        case FLOAT:
+          return Float.intBitsToFloat(readFixedInt());
+        case DOUBLE:
+          return Double.longBitsToDouble(readFixedLong());
+        case STRING:
+          return readString();
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case BIG_DECIMAL:
+          return new BigDecimal(new BigInteger(readBytes()), (int) readVarLong());
+        case DATE:
+          return new Date(readVarLong());
+        case SQL_DATE:
+          return new java.sql.Date(readVarLong());
+        case SQL_TIME:
+          return new java.sql.Time(readVarLong());
+        case SQL_TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(readVarLong());
+          timestamp.setNanos((int) readVarLong());
+          return timestamp;
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          return readClass().getEnumConstants()[readVarInt()];
+        case ARRAY:
+          return readArray();
+        case COLLECTION:
+          return readCollection();
+        case MAP:
+          return readMap();
+        case BEAN:
+          return readBean();
+        case SERIALIZED:
+          Object value = serializationCodec.decode(readBytes());
+          references.add(value);
+          return value;
+        default:
+          throw new CacheException("Corrupted cache entry, unknown tag " + tag + " at " + (position - 1));
+      }
+    }
+
+    private Object readArray() {
+      Class<?> componentType = readClass();
+      int length = readVarInt();
+      Object array = Array.newInstance(componentType, length);
+      references.add(array);
+      for (int i = 0; i < length; i++) {
+        Array.set(array, i, readValue());
+      }
+      return array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readCollection() {
+      Class<?> type = readClass();
+      int size = readVarInt();
+      Collection<Object> collection = (Collection<Object>) newInstance(type);
+      if (collection == null) {
+        collection = Set.class.isAssignableFrom(type) ? new LinkedHashSet<>() : new ArrayList<>(size);
+      }
+      references.add(collection);
+      for (int i = 0; i < size; i++) {
+        collection.add(readValue());
+      }
+      return collection;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object readMap() {
+      Class<?> type = readClass();
+      int size = readVarInt();
+      Map<Object, Object> map = (Map<Object, Object>) newInstance(type);
+      if (map == null) {
+        map = new LinkedHashMap<>();
+      }
+      references.add(map);
+      for (int i = 0; i < size; i++) {
+        map.put(readValue(), readValue());
+      }
+      return map;
+    }
+
+    private Object readBean() {
+      Class<?> type = readClass();
+      BeanProperties bean = BeanProperties.forClass(type);
+      if (bean == null) {
+        throw new CacheException("Corrupted cache entry, " + type + " is not a bean");
+      }
+      Object value = bean.newInstance();
+      references.add(value);
+      for (int i = 0; i < bean.size(); i++) {
+        bean.set(value, i, readValue());
+      }
+      return value;
+    }
+
+    private Object newInstance(Class<?> type) {
+      if (!Modifier.isPublic(type.getModifiers())) {
+        return null;
+      }
+      try {
+        return type.getConstructor().newInstance();
+      } catch (Exception e) {
+        return null;
+      }
+    }
+
+    private Class<?> readClass() {
+      int id = readVarInt();
+      if ((id & 1) == 1) {
+        return registeredClasses.get(id >>> 1);
+      }
+      if (id != 0) {
+        return classes.get((id >>> 1) - 1);
+      }
+      String name = readString();
+      try {
+        Class<?> type = Resources.classForName(name);
+        classes.add(type);
+        return type;
+      } catch (ClassNotFoundException e) {
+        throw new CacheException("Error deserializing object.  Cause: " + e, e);
+      }
+    }
+
+    private String readString() {
+      int length = readVarInt();
+      String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    private byte[] readBytes() {
+      int length = readVarInt();
+      byte[] bytes = new byte[length];
+      System.arraycopy(buffer, position, bytes, 0, length);
+      position += length;
+      return bytes;
+    }
+
+    private long readVarLong() {
+      long zigzag = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = buffer[position++];
+        zigzag |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          break;
+        }
+      }
+      return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = buffer[position++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+
+    private int readFixedInt() {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value |= (buffer[position++] & 0xFF) << (i << 3);
+      }
+      return value;
+    }
+
+    private long readFixedLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value |= (buffer[position++] & 0xFFL) << (i << 3);
+      }
+      return value;
+    }
+  }
+
+}
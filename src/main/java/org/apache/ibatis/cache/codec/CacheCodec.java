@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+/**
+ * Strategy used by {@link org.apache.ibatis.cache.decorators.SerializedCache} to keep cached values isolated from
+ * the callers that put and get them.
+ * <p>
+ * Implementations must have a public no-args constructor and be thread safe.
+ *
+ * @since 3.5.2
+ */
+public interface CacheCodec {
+
+  /**
+   * Turns a value into the form kept by the cache. Later changes to {@code value} must not affect the result.
+   *
+   * @param value a non null value to be cached
+   * @return the stored form of the value
+   */
+  Object encode(Object value);
+
+  /**
+   * Rebuilds a value from the form returned by {@link #encode(Object)}. Each call must return a new copy.
+   *
+   * @param encoded the stored form of the value
+   * @return a copy of the original value
+   */
+  Object decode(Object encoded);
+
+}
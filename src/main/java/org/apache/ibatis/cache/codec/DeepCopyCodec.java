@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+
+/**
+ * Keeps cached values as deep copies made through the {@link org.apache.ibatis.reflection.Reflector} of each bean,
+ * without going through bytes at all.
+ * <p>
+ * Immutable values are shared, dates and arrays are cloned, collections and maps are rebuilt with copied elements and
+ * beans are rebuilt property by property. Shared references and cycles are preserved. Anything else is copied using
+ * Java serialization.
+ * <p>
+ * Beans need a default constructor and a readable and writable property for each instance field. Other objects are
+ * copied using Java serialization, so they must be serializable.
+ *
+ * @since 3.5.2
+ */
+public class DeepCopyCodec implements CacheCodec {
+
+  private final JavaSerializationCodec serializationCodec = new JavaSerializationCodec();
+
+  @Override
+  public Object encode(Object value) {
+    return copy(value, new IdentityHashMap<>());
+  }
+
+  @Override
+  public Object decode(Object encoded) {
+    return copy(encoded, new IdentityHashMap<>());
+  }
+
+  private Object copy(Object value, Map<Object, Object> copies) {
+    if (value == null || isImmutable(value)) {
+      return value;
+    }
+    Object copy = copies.get(value);
+    if (copy != null) {
+      return copy;
+    }
+    Class<?> type = value.getClass();
+    BeanProperties bean;
+    if (value instanceof Date) {
+      copy = ((Date) value).clone();
+      copies.put(value, copy);
+    } else if (type.isArray()) {
+      copy = copyArray(value, type, copies);
+    } else if (value instanceof Collection && !(value instanceof SortedSet)) {
+      copy = copyCollection((Collection<?>) value, type, copies);
+    } else if (value instanceof Map && !(value instanceof SortedMap)) {
+      copy = copyMap((Map<?, ?>) value, type, copies);
+    } else if ((bean = BeanProperties.forClass(type)) != null) {
+      copy = bean.newInstance();
+      copies.put(value, copy);
+      for (int i = 0; i < bean.size(); i++) {
+        bean.set(copy, i, copy(bean.get(value, i), copies));
+      }
+    } else {
+      copy = serializationCodec.decode(serializationCodec.encode(value));
+      copies.put(value, copy);
+    }
+    return copy;
+  }
+
+  private Object copyArray(Object array, Class<?> type, Map<Object, Object> copies) {
+    int length = Array.getLength(array);
+    Object copy = Array.newInstance(type.getComponentType(), length);
+    copies.put(array, copy);
+    if (type.getComponentType().isPrimitive()) {
+      System.arraycopy(array, 0, copy, 0, length);
+    } else {
+      for (int i = 0; i < length; i++) {
+        Array.set(copy, i, copy(Array.get(array, i), copies));
+      }
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object copyCollection(Collection<?> collection, Class<?> type, Map<Object, Object> copies) {
+    Collection<Object> copy = (Collection<Object>) newInstance(type);
+    if (copy == null) {
+      copy = collection instanceof Set ? new LinkedHashSet<>() : new ArrayList<>(collection.size());
+    }
+    copies.put(collection, copy);
+    for (Object element : collection) {
+      copy.add(copy(element, copies));
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object copyMap(Map<?, ?> map, Class<?> type, Map<Object, Object> copies) {
+    Map<Object, Object> copy = (Map<Object, Object>) newInstance(type);
+    if (copy == null) {
+      copy = new LinkedHashMap<>();
+    }
+    copies.put(map, copy);
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      copy.put(copy(entry.getKey(), copies), copy(entry.getValue(), copies));
+    }
+    return copy;
+  }
+
+  private Object newInstance(Class<?> type) {
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return null;
+    }
+    try {
+      return type.getConstructor().newInstance();
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  private boolean isImmutable(Object value) {
+    Class<?> type = value.getClass();
+    return type == String.class || type == Integer.class || type == Long.class || type == Boolean.class
+        || type == Double.class || type == Float.class || type == Short.class || type == Byte.class
+        || type == Character.class || type == BigDecimal.class || type == BigInteger.class || type == UUID.class
+        || type == Class.class || value instanceof Enum || type.getName().startsWith("java.time.");
+  }
+
+}
@@ -15,11 +15,15 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
@@ -27,24 +31,24 @@ import org.apache.ibatis.cache.CacheException;
 /**
  * Simple blocking decorator
  *
- * Simple and inefficient version of EhCache's BlockingCache decorator.
- * It sets a lock over a cache key when the element is not found in cache.
- * This way, other threads will wait until this element is filled instead of hitting the database.
+ * Single-flight version of EhCache's BlockingCache decorator.
+ * When an element is not found in cache, the first thread that asked for it becomes its loader and the other threads
+ * wait for the loader to put it instead of hitting the database. Waiting threads read the loaded element back from the
+ * delegate, so read/write caches still hand out copies. When the loader releases the key without a value, one of the
+ * waiting threads takes over loading it. Nothing is left behind for a key once it has been released.
  *
  * @author Eduardo Macarron
  *
- * //通过 ReentrantLock 可重入锁实现
- *
  */
 public class BlockingCache implements Cache {
 
   private long timeout;
   private final Cache delegate;
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final ConcurrentHashMap<Object, Load> loads;
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<>();
+    this.loads = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -61,28 +65,94 @@ public class BlockingCache implements Cache {
   public void putObject(Object key, Object value) {
     try {
       delegate.putObject(key, value);
-    } finally {
-      releaseLock(key);
+    } catch (RuntimeException e) {
+      release(key, null, e);
+      throw e;
+    }
+    release(key, value, null);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    try {
+      delegate.putAll(entries);
+    } catch (RuntimeException e) {
+      for (Object key : entries.keySet()) {
+        release(key, null, e);
+      }
+      throw e;
+    }
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      release(entry.getKey(), entry.getValue(), null);
     }
   }
 
   @Override
   public Object getObject(Object key) {
-    acquireLock(key);
-    Object value = delegate.getObject(key);
-    if (value != null) {
-      releaseLock(key);
+    while (true) {
+      Load load = new Load();
+      Load current = loads.putIfAbsent(key, load);
+      if (current == null) {
+        return loadOrRelease(key);
+      }
+      if (current.owner == Thread.currentThread()) {
+        return delegate.getObject(key);
+      }
+      if (await(key, current) != null) {
+        Object value = delegate.getObject(key);
+        if (value != null) {
+          return value;
+        }
+      }
+    }
+  }
+
+  /**
+   * Single-flight load: the first thread that misses the key runs the loader and releases the key as soon as the
+   * loader returns, while the other threads wait for it.
+   */
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    while (true) {
+      Load load = new Load();
+      Load current = loads.putIfAbsent(key, load);
+      if (current == null) {
+        Object value;
+        try {
+          value = delegate.getOrLoad(key, loader);
+        } catch (RuntimeException e) {
+          release(key, null, e);
+          throw e;
+        }
+        release(key, value, null);
+        return value;
+      }
+      if (current.owner == Thread.currentThread()) {
+        return delegate.getOrLoad(key, loader);
+      }
+      if (await(key, current) != null) {
+        Object value = delegate.getObject(key);
+        if (value != null) {
+          return value;
+        }
+      }
     }
-    return value;
   }
 
   @Override
   public Object removeObject(Object key) {
     // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    release(key, null, null);
     return null;
   }
 
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      release(key, null, null);
+    }
+  }
+
   @Override
   public void clear() {
     delegate.clear();
@@ -93,30 +163,49 @@ public class BlockingCache implements Cache {
     return null;
   }
 
-  private ReentrantLock getLockForKey(Object key) {
-    return locks.computeIfAbsent(key, k -> new ReentrantLock());
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
   }
 
-  private void acquireLock(Object key) {
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        if (!acquired) {
-          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
-        }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+  private Object loadOrRelease(Object key) {
+    Object value;
+    try {
+      value = delegate.getObject(key);
+    } catch (RuntimeException e) {
+      release(key, null, e);
+      throw e;
+    }
+    if (value != null) {
+      release(key, value, null);
+    }
+    return value;
+  }
+
+  private Object await(Object key, Load load) {
+    try {
+      if (timeout > 0) {
+        return load.get(timeout, TimeUnit.MILLISECONDS);
       }
-    } else {
-      lock.lock();
+      return load.get();
+    } catch (TimeoutException e) {
+      throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    } catch (ExecutionException e) {
+      throw new CacheException("Loading of key " + key + " at the cache " + delegate.getId() + " failed. Cause: " + e.getCause(), e.getCause());
     }
   }
 
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) {
-      lock.unlock();
+  private void release(Object key, Object value, Throwable failure) {
+    Load load = loads.get(key);
+    if (load != null && load.owner == Thread.currentThread() && loads.remove(key, load)) {
+      if (failure == null) {
+        load.complete(value);
+      } else {
+        load.completeExceptionally(failure);
+      }
     }
   }
 
@@ -127,4 +216,8 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  private static final class Load extends CompletableFuture<Object> {
+    private final Thread owner = Thread.currentThread();
+  }
 }
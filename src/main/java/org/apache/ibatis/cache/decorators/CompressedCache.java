@@ -0,0 +1,216 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Compresses the values of a cache with the LZ4 block format.
+ * <p>
+ * It is meant to sit below a {@link SerializedCache} whose codec turns values into byte arrays. Only byte arrays are
+ * compressed; other values, such as the copies of a deep copy codec, are passed through as they are. Byte arrays
+ * smaller than the {@code threshold}, or that do not get smaller when compressed, are stored uncompressed. Either way
+ * the delegate holds them with a one byte header.
+ *
+ * @since 3.5.2
+ */
+public class CompressedCache implements Cache {
+
+  private static final int COMPRESSED = 1;
+  private static final int LENGTH_BYTES = 4;
+
+  private final Cache delegate;
+  private final LongAdder compressedCount = new LongAdder();
+  private final LongAdder originalBytes = new LongAdder();
+  private final LongAdder compressedBytes = new LongAdder();
+  private int threshold = 1024;
+
+  public CompressedCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * @param threshold the size in bytes from which values are compressed
+   */
+  public void setThreshold(int threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * @return the number of values stored compressed
+   */
+  public long getCompressedCount() {
+    return compressedCount.sum();
+  }
+
+  /**
+   * @return the size of the compressed values before compression divided by their size after it, or {@code 1} when
+   *         no value was compressed
+   */
+  public double getCompressionRatio() {
+    long compressed = compressedBytes.sum();
+    return compressed == 0 ? 1 : (double) originalBytes.sum() / compressed;
+  }
+
+  public void resetStatistics() {
+    compressedCount.reset();
+    originalBytes.reset();
+    compressedBytes.reset();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, encode(value));
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return decode(delegate.getObject(key));
+  }
+
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    Object[] loaded = new Object[1];
+    Object value = delegate.getOrLoad(key, k -> {
+      loaded[0] = loader.apply(k);
+      return encode(loaded[0]);
+    });
+    if (loaded[0] != null) {
+      return loaded[0];
+    }
+    return decode(value);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    Map<Object, Object> encoded = new HashMap<>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      encoded.put(entry.getKey(), encode(entry.getValue()));
+    }
+    delegate.putAll(encoded);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<>();
+    for (Map.Entry<Object, Object> entry : delegate.getAll(keys).entrySet()) {
+      values.put(entry.getKey(), decode(entry.getValue()));
+    }
+    return values;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  private Object encode(Object value) {
+    if (!(value instanceof byte[])) {
+      return value;
+    }
+    byte[] bytes = (byte[]) value;
+    if (bytes.length >= threshold) {
+      byte[] compressed = new byte[1 + LENGTH_BYTES + Lz4Block.maxCompressedLength(bytes.length)];
+      int length = Lz4Block.compress(bytes, 0, bytes.length, compressed, 1 + LENGTH_BYTES);
+      if (length < bytes.length - LENGTH_BYTES) {
+        compressed[0] = COMPRESSED;
+        compressed[1] = (byte) (bytes.length >>> 24);
+        compressed[2] = (byte) (bytes.length >>> 16);
+        compressed[3] = (byte) (bytes.length >>> 8);
+        compressed[4] = (byte) bytes.length;
+        compressedCount.increment();
+        originalBytes.add(bytes.length);
+        compressedBytes.add(length);
+        byte[] stored = new byte[1 + LENGTH_BYTES + length];
+        System.arraycopy(compressed, 0, stored, 0, stored.length);
+        return stored;
+      }
+    }
+    byte[] stored = new byte[1 + bytes.length];
+    stored[0] = 0;
+    System.arraycopy(bytes, 0, stored, 1, bytes.length);
+    return stored;
+  }
+
+  private Object decode(Object value) {
+    if (!(value instanceof byte[])) {
+      return value;
+    }
+    byte[] stored = (byte[]) value;
+    byte[] bytes;
+    if ((stored[0] & COMPRESSED) != 0) {
+      int length = (stored[1] & 0xFF) << 24 | (stored[2] & 0xFF) << 16 | (stored[3] & 0xFF) << 8 | stored[4] & 0xFF;
+      bytes = new byte[length];
+      Lz4Block.decompress(stored, 1 + LENGTH_BYTES, stored.length - 1 - LENGTH_BYTES, bytes);
+    } else {
+      bytes = new byte[stored.length - 1];
+      System.arraycopy(stored, 1, bytes, 0, bytes.length);
+    }
+    return bytes;
+  }
+
+}
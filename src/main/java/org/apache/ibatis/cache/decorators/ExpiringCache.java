@@ -0,0 +1,267 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+
+/**
+ * Expires each entry on its own once it has lived longer than {@code timeToLive} milliseconds or has not been
+ * read for {@code timeToIdle} milliseconds. A value of zero disables the corresponding limit.
+ * <p>
+ * Unlike {@link ScheduledCache}, entries age out one by one instead of all at once. Reads look the expiry of their
+ * key up in a concurrent map and only take the lock to expire it. Writes also keep the keys in a map ordered by the
+ * time they were queued, and sweep expired entries from its head under the lock, so the cost of expiring an entry is
+ * paid once. An entry that was read since it was queued is moved to the tail when it reaches the head, and an entry
+ * that outlived its time to live while being read is expired on its next read.
+ *
+ * @since 3.5.2
+ */
+public class ExpiringCache implements Cache {
+
+  private final Cache delegate;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Map<Object, Expiry> expiries = new ConcurrentHashMap<>();
+  private final Map<Object, Expiry> queue = new LinkedHashMap<>();
+  private long timeToLive;
+  private long timeToIdle;
+  private EvictionListener evictionListener;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      expireEntries(System.currentTimeMillis());
+      return delegate.getSize();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long now = System.currentTimeMillis();
+    lock.lock();
+    try {
+      expireEntries(now);
+      enqueue(key, new Expiry(now));
+      delegate.putObject(key, value);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    long now = System.currentTimeMillis();
+    lock.lock();
+    try {
+      expireEntries(now);
+      for (Object key : entries.keySet()) {
+        enqueue(key, new Expiry(now));
+      }
+      delegate.putAll(entries);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    long now = System.currentTimeMillis();
+    Expiry expiry = expiries.get(key);
+    if (expiry == null) {
+      return null;
+    }
+    if (isExpired(expiry, now)) {
+      lock.lock();
+      try {
+        if (expiries.remove(key, expiry)) {
+          queue.remove(key);
+          delegate.removeObject(key);
+          evicted(key);
+        }
+      } finally {
+        lock.unlock();
+      }
+      return null;
+    }
+    expiry.accessedAt = now;
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      expiries.remove(key);
+      queue.remove(key);
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    lock.lock();
+    try {
+      if (delegate.removeObject(key, value)) {
+        expiries.remove(key);
+        queue.remove(key);
+        return true;
+      }
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    lock.lock();
+    try {
+      for (Object key : keys) {
+        expiries.remove(key);
+        queue.remove(key);
+      }
+      delegate.removeAll(keys);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      expiries.clear();
+      queue.clear();
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    this.timeToLive = timeToLive;
+  }
+
+  public long getTimeToIdle() {
+    return timeToIdle;
+  }
+
+  public void setTimeToIdle(long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+  }
+
+  private void enqueue(Object key, Expiry expiry) {
+    expiries.put(key, expiry);
+    // a new write starts a new life, so move the key to the tail
+    queue.remove(key);
+    queue.put(key, expiry);
+  }
+
+  private void expireEntries(long now) {
+    // every entry is looked at most twice: once to requeue it after reads, once to stop or expire it
+    int budget = queue.size() * 2;
+    Iterator<Map.Entry<Object, Expiry>> iterator = queue.entrySet().iterator();
+    while (iterator.hasNext() && budget-- > 0) {
+      Map.Entry<Object, Expiry> eldest = iterator.next();
+      Object key = eldest.getKey();
+      Expiry expiry = eldest.getValue();
+      if (isExpired(expiry, now)) {
+        iterator.remove();
+        expiries.remove(key, expiry);
+        delegate.removeObject(key);
+        evicted(key);
+        continue;
+      }
+      long accessedAt = expiry.accessedAt;
+      if (timeToIdle > 0 && accessedAt != expiry.queuedAt) {
+        // read since it was queued, so it is not the next one to go idle
+        expiry.queuedAt = accessedAt;
+        iterator.remove();
+        queue.put(key, expiry);
+        iterator = queue.entrySet().iterator();
+      } else {
+        return;
+      }
+    }
+  }
+
+  private boolean isExpired(Expiry expiry, long now) {
+    return (timeToLive > 0 && now - expiry.writtenAt >= timeToLive)
+        || (timeToIdle > 0 && now - expiry.accessedAt >= timeToIdle);
+  }
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
+    }
+  }
+
+  private static class Expiry {
+    private final long writtenAt;
+    private volatile long accessedAt;
+    private long queuedAt;
+
+    Expiry(long writtenAt) {
+      this.writtenAt = writtenAt;
+      this.accessedAt = writtenAt;
+      this.queuedAt = writtenAt;
+    }
+  }
+
+}
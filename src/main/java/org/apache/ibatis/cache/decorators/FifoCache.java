@@ -17,9 +17,12 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * FIFO (first in, first out) cache decorator.
@@ -35,6 +38,7 @@ public class FifoCache implements Cache {
   private final Cache delegate;
   private final Deque<Object> keyList;
   private int size;
+  private EvictionListener evictionListener;
 
   public FifoCache(Cache delegate) {
     this.delegate = delegate;
@@ -62,22 +66,56 @@ public class FifoCache implements Cache {
     delegate.putObject(key, value);
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    for (Object key : entries.keySet()) {
+      cycleKeyList(key);
+    }
+    delegate.putAll(entries);
+  }
+
   @Override
   public Object getObject(Object key) {
     return delegate.getObject(key);
   }
 
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    boolean[] loaded = new boolean[1];
+    Object value = delegate.getOrLoad(key, k -> {
+      loaded[0] = true;
+      return loader.apply(k);
+    });
+    if (loaded[0]) {
+      cycleKeyList(key);
+    }
+    return value;
+  }
+
   @Override
   public Object removeObject(Object key) {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    return delegate.removeObject(key, value);
+  }
+
   @Override
   public void clear() {
     delegate.clear();
     keyList.clear();
   }
 
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   * @since 3.5.2
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -88,6 +126,14 @@ public class FifoCache implements Cache {
     if (keyList.size() > size) {
       Object oldestKey = keyList.removeFirst();
       delegate.removeObject(oldestKey);
+      evicted(oldestKey);
+    }
+  }
+
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
     }
   }
 
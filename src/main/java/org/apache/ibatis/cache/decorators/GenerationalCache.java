@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Clears the cache in constant time.
+ * <p>
+ * Every key is stored together with the current generation of the cache, and {@link #clear()} only moves on to the
+ * next generation, so that the entries of the previous generations can no longer be found. They are not removed:
+ * the eviction policy of the decorated cache drops them as new entries come in, so this decorator should only wrap
+ * a bounded cache.
+ *
+ * @since 3.5.2
+ */
+public class GenerationalCache implements Cache {
+
+  private final Cache delegate;
+  private volatile long generation;
+
+  public GenerationalCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  /**
+   * @return the number of entries held by the decorated cache, including those of previous generations that have not
+   *         been evicted yet
+   */
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(new GenerationKey(generation, key), value);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    long current = generation;
+    Map<Object, Object> generationEntries = new HashMap<>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      generationEntries.put(new GenerationKey(current, entry.getKey()), entry.getValue());
+    }
+    delegate.putAll(generationEntries);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(new GenerationKey(generation, key));
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    long current = generation;
+    List<Object> generationKeys = new ArrayList<>(keys.size());
+    for (Object key : keys) {
+      generationKeys.add(new GenerationKey(current, key));
+    }
+    Map<Object, Object> values = new HashMap<>();
+    for (Map.Entry<Object, Object> entry : delegate.getAll(generationKeys).entrySet()) {
+      values.put(((GenerationKey) entry.getKey()).key, entry.getValue());
+    }
+    return values;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(new GenerationKey(generation, key));
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    long current = generation;
+    List<Object> generationKeys = new ArrayList<>(keys.size());
+    for (Object key : keys) {
+      generationKeys.add(new GenerationKey(current, key));
+    }
+    delegate.removeAll(generationKeys);
+  }
+
+  @Override
+  public synchronized void clear() {
+    generation++;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  private static final class GenerationKey {
+
+    private final long generation;
+    private final Object key;
+    private final int hashCode;
+
+    GenerationKey(long generation, Object key) {
+      this.generation = generation;
+      this.key = key;
+      this.hashCode = 31 * key.hashCode() + Long.hashCode(generation);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof GenerationKey)) {
+        return false;
+      }
+      GenerationKey other = (GenerationKey) o;
+      return generation == other.generation && hashCode == other.hashCode && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return generation + ":" + key;
+    }
+  }
+
+}
@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring of strong references to the values most recently read from a {@link SoftCache} or
+ * {@link WeakCache}, so that the garbage collector does not reclaim them while they are in use.
+ * <p>
+ * Adding a link only claims the next slot and overwrites the oldest link held there, so readers never wait for
+ * each other.
+ *
+ * @since 3.5.2
+ */
+final class HardLinks {
+
+  private final AtomicReferenceArray<Object> links;
+  private final AtomicLong cursor = new AtomicLong();
+
+  HardLinks(int size) {
+    this.links = new AtomicReferenceArray<>(Math.max(size, 0));
+  }
+
+  void add(Object value) {
+    int length = links.length();
+    if (length > 0) {
+      links.lazySet((int) Math.floorMod(cursor.getAndIncrement(), (long) length), value);
+    }
+  }
+
+  void clear() {
+    for (int i = 0; i < links.length(); i++) {
+      links.set(i, null);
+    }
+  }
+
+}
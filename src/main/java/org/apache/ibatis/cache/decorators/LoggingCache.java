@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.logging.Log;
@@ -31,8 +35,14 @@ public class LoggingCache implements Cache {
 
   private final Log log;
   private final Cache delegate;
+  /**
+   * The number of requests when the counters were last updated. The cache counts them with {@link LongAdder}s, so
+   * that lock-free caches do not lose counts, and copies the sums here for subclasses.
+   */
   protected int requests = 0;
   protected int hits = 0;
+  private final LongAdder requestCount = new LongAdder();
+  private final LongAdder hitCount = new LongAdder();
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
@@ -56,11 +66,30 @@ public class LoggingCache implements Cache {
 
   @Override
   public Object getObject(Object key) {
-    requests++;
+    requestCount.increment();
     final Object value = delegate.getObject(key);
     if (value != null) {
-      hits++;
+      hitCount.increment();
     }
+    updateCounters();
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
+    }
+    return value;
+  }
+
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    requestCount.increment();
+    boolean[] loaded = new boolean[1];
+    final Object value = delegate.getOrLoad(key, k -> {
+      loaded[0] = true;
+      return loader.apply(k);
+    });
+    if (!loaded[0]) {
+      hitCount.increment();
+    }
+    updateCounters();
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
     }
@@ -77,11 +106,38 @@ public class LoggingCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    requestCount.add(keys.size());
+    final Map<Object, Object> values = delegate.getAll(keys);
+    hitCount.add(values.size());
+    updateCounters();
+    if (log.isDebugEnabled()) {
+      log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -92,8 +148,13 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  private void updateCounters() {
+    requests = requestCount.intValue();
+    hits = hitCount.intValue();
+  }
+
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return hitCount.doubleValue() / requestCount.doubleValue();
   }
 
 }
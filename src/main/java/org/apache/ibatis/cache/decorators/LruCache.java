@@ -15,11 +15,14 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * Lru (least recently used) cache decorator.
@@ -37,6 +40,7 @@ public class LruCache implements Cache {
   private final Cache delegate;
   private Map<Object, Object> keyMap;
   private Object eldestKey;
+  private EvictionListener evictionListener;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
@@ -80,17 +84,54 @@ public class LruCache implements Cache {
     return delegate.getObject(key);
   }
 
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    Object value = delegate.getOrLoad(key, loader);
+    // touches the key, or adds it when it has just been loaded
+    cycleKeyList(key);
+    return value;
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    for (Object key : entries.keySet()) {
+      cycleKeyList(key);
+    }
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    for (Object key : keys) {
+      keyMap.get(key); //touch
+    }
+    return delegate.getAll(keys);
+  }
+
   @Override
   public Object removeObject(Object key) {
     return delegate.removeObject(key);
   }
 
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    return delegate.removeObject(key, value);
+  }
+
   @Override
   public void clear() {
     delegate.clear();
     keyMap.clear();
   }
 
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   * @since 3.5.2
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -100,8 +141,16 @@ public class LruCache implements Cache {
     keyMap.put(key, key);
     if (eldestKey != null) {
       delegate.removeObject(eldestKey);
+      evicted(eldestKey);
       eldestKey = null;
     }
   }
 
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
+    }
+  }
+
 }
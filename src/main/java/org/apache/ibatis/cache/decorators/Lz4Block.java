@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Compressor for the LZ4 block format, used by the {@link CompressedCache}.
+ * <p>
+ * Matches are found with a single hash table of four byte sequences and no match search chains, which favours speed
+ * over ratio. Data that does not compress is skipped over with growing steps, so it costs little to try.
+ *
+ * @since 3.5.2
+ */
+final class Lz4Block {
+
+  private static final int MIN_MATCH = 4;
+  private static final int HASH_LOG = 12;
+  private static final int MF_LIMIT = 12;
+  private static final int LAST_LITERALS = 5;
+  private static final int MAX_DISTANCE = 65535;
+  private static final int SKIP_TRIGGER = 6;
+
+  private Lz4Block() {
+    // Prevent Instantiation
+  }
+
+  static int maxCompressedLength(int length) {
+    return length + length / 255 + 16;
+  }
+
+  /**
+   * @return the number of bytes written to {@code dest}, which must hold {@link #maxCompressedLength(int)} bytes
+   */
+  static int compress(byte[] src, int srcOff, int srcLen, byte[] dest, int destOff) {
+    int srcEnd = srcOff + srcLen;
+    int matchLimit = srcEnd - MF_LIMIT;
+    int matchEnd = srcEnd - LAST_LITERALS;
+    int[] table = new int[1 << HASH_LOG];
+    Arrays.fill(table, -1);
+    int anchor = srcOff;
+    int ip = srcOff;
+    int op = destOff;
+    int misses = 0;
+    while (ip < matchLimit) {
+      int sequence = readInt(src, ip);
+      int hash = hash(sequence);
+      int ref = table[hash];
+      table[hash] = ip;
+      if (ref < 0 || ip - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+        ip += 1 + (misses++ >>> SKIP_TRIGGER);
+        continue;
+      }
+      misses = 0;
+      while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+        ip--;
+        ref--;
+      }
+      int matchLength = MIN_MATCH;
+      while (ip + matchLength < matchEnd && src[ip + matchLength] == src[ref + matchLength]) {
+        matchLength++;
+      }
+      op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op);
+      ip += matchLength;
+      anchor = ip;
+    }
+    return writeLastLiterals(src, anchor, srcEnd - anchor, dest, op) - destOff;
+  }
+
+  static void decompress(byte[] src, int srcOff, int srcLen, byte[] dest) {
+    int srcEnd = srcOff + srcLen;
+    int ip = srcOff;
+    int op = 0;
+    try {
+      while (true) {
+        int token = src[ip++] & 0xFF;
+        int literalLength = token >>> 4;
+        if (literalLength == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xFF;
+            literalLength += b;
+          } while (b == 255);
+        }
+        System.arraycopy(src, ip, dest, op, literalLength);
+        ip += literalLength;
+        op += literalLength;
+        if (ip >= srcEnd) {
+          break;
+        }
+        int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+        int matchLength = token & 0x0F;
+        if (matchLength == 15) {
+          int b;
+          do {
+            b = src[ip++] & 0xFF;
+            matchLength += b;
+          } while (b == 255);
+        }
+        matchLength += MIN_MATCH;
+        int ref = op - offset;
+        if (offset == 0 || ref < 0) {
+          throw new CacheException("Corrupted compressed value: invalid match offset " + offset + " at " + op);
+        }
+        if (offset >= matchLength) {
+          System.arraycopy(dest, ref, dest, op, matchLength);
+          op += matchLength;
+        } else {
+          // overlapping match, repeats the last offset bytes
+          for (int end = op + matchLength; op < end; op++, ref++) {
+            dest[op] = dest[ref];
+          }
+        }
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new CacheException("Corrupted compressed value.  Cause: " + e, e);
+    }
+    if (op != dest.length) {
+      throw new CacheException("Corrupted compressed value: expected " + dest.length + " bytes but got " + op);
+    }
+  }
+
+  private static int writeSequence(byte[] src, int literalOff, int literalLength, int offset, int matchLength,
+      byte[] dest, int op) {
+    int tokenPos = op++;
+    int token;
+    if (literalLength >= 15) {
+      token = 15 << 4;
+      op = writeLength(literalLength - 15, dest, op);
+    } else {
+      token = literalLength << 4;
+    }
+    System.arraycopy(src, literalOff, dest, op, literalLength);
+    op += literalLength;
+    dest[op++] = (byte) offset;
+    dest[op++] = (byte) (offset >>> 8);
+    int extraLength = matchLength - MIN_MATCH;
+    if (extraLength >= 15) {
+      token |= 15;
+      op = writeLength(extraLength - 15, dest, op);
+    } else {
+      token |= extraLength;
+    }
+    dest[tokenPos] = (byte) token;
+    return op;
+  }
+
+  private static int writeLastLiterals(byte[] src, int literalOff, int literalLength, byte[] dest, int op) {
+    if (literalLength >= 15) {
+      dest[op++] = (byte) (15 << 4);
+      op = writeLength(literalLength - 15, dest, op);
+    } else {
+      dest[op++] = (byte) (literalLength << 4);
+    }
+    System.arraycopy(src, literalOff, dest, op, literalLength);
+    return op + literalLength;
+  }
+
+  private static int writeLength(int length, byte[] dest, int op) {
+    while (length >= 255) {
+      dest[op++] = (byte) 255;
+      length -= 255;
+    }
+    dest[op++] = (byte) length;
+    return op;
+  }
+
+  private static int readInt(byte[] bytes, int i) {
+    return (bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 3] & 0xFF) << 24;
+  }
+
+  private static int hash(int sequence) {
+    return (sequence * -1640531535) >>> (32 - HASH_LOG);
+  }
+
+}
@@ -0,0 +1,331 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+
+/**
+ * Collects hit, miss, put, eviction and load time statistics of a cache.
+ * <p>
+ * Counters are lock free, so the decorator is as thread safe as its delegate. Evictions and sizes in bytes are only
+ * known when a {@link Tracker} has been put right on top of the base cache and set as the eviction listener of the
+ * caches that evict entries: it counts the evictions they report and sees the serialized values of read/write caches.
+ * Load times are measured by {@link #getOrLoad}, or reported with {@link #recordLoad} by callers that load values
+ * themselves before putting them.
+ *
+ * @since 3.5.2
+ */
+public class MetricsCache implements Cache, MetricsCacheMBean {
+
+  private final Cache delegate;
+  private final Tracker tracker;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder loadNanos = new LongAdder();
+
+  public MetricsCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  public MetricsCache(Cache delegate, Tracker tracker) {
+    this.delegate = delegate;
+    this.tracker = tracker;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    puts.increment();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    requests.increment();
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      hits.increment();
+    }
+    return value;
+  }
+
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    requests.increment();
+    boolean[] loaded = new boolean[1];
+    Object value = delegate.getOrLoad(key, k -> {
+      loaded[0] = true;
+      long start = System.nanoTime();
+      Object loadedValue = loader.apply(k);
+      recordLoad(System.nanoTime() - start);
+      return loadedValue;
+    });
+    if (loaded[0]) {
+      puts.increment();
+    } else {
+      hits.increment();
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    puts.add(entries.size());
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    requests.add(keys.size());
+    Map<Object, Object> values = delegate.getAll(keys);
+    hits.add(values.size());
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requests.sum();
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMissCount() {
+    return requests.sum() - hits.sum();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long requestCount = requests.sum();
+    return requestCount == 0 ? 0 : (double) hits.sum() / (double) requestCount;
+  }
+
+  @Override
+  public long getPutCount() {
+    return puts.sum();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return tracker == null ? -1 : tracker.evictions.sum();
+  }
+
+  @Override
+  public double getAverageLoadTime() {
+    long loadCount = loads.sum();
+    return loadCount == 0 ? 0 : (double) loadNanos.sum() / loadCount / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public long getApproximateBytes() {
+    return tracker == null ? -1 : tracker.approximateBytes();
+  }
+
+  @Override
+  public void resetStatistics() {
+    requests.reset();
+    hits.reset();
+    puts.reset();
+    loads.reset();
+    loadNanos.reset();
+    if (tracker != null) {
+      tracker.evictions.reset();
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * Records the time a value missing from this cache took to load, for callers that load values themselves and put
+   * them later, e.g. on commit.
+   *
+   * @param nanos the time spent loading the value
+   */
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadNanos.add(nanos);
+  }
+
+  /**
+   * Counts the evictions reported by the caches it listens to and the size of the byte arrays put into the base cache.
+   */
+  public static class Tracker implements Cache, EvictionListener {
+
+    private final Cache delegate;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder valueBytes = new LongAdder();
+    private final LongAdder valueCount = new LongAdder();
+
+    public Tracker(Cache delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public int getSize() {
+      return delegate.getSize();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      delegate.putObject(key, value);
+      recordValue(value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      return delegate.getObject(key);
+    }
+
+    @Override
+    public Object getOrLoad(Object key, Function<Object, ?> loader) {
+      return delegate.getOrLoad(key, k -> {
+        Object value = loader.apply(k);
+        recordValue(value);
+        return value;
+      });
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      return delegate.removeObject(key);
+    }
+
+    @Override
+    public boolean removeObject(Object key, Object value) {
+      return delegate.removeObject(key, value);
+    }
+
+    @Override
+    public void evicted(Object key) {
+      evictions.increment();
+    }
+
+    @Override
+    public void clear() {
+      delegate.clear();
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+      delegate.putAll(entries);
+      for (Object value : entries.values()) {
+        recordValue(value);
+      }
+    }
+
+    @Override
+    public Map<Object, Object> getAll(Collection<?> keys) {
+      return delegate.getAll(keys);
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+      return null;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return delegate.isThreadSafe();
+    }
+
+    @Override
+    public int hashCode() {
+      return delegate.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return delegate.equals(obj);
+    }
+
+    private void recordValue(Object value) {
+      if (value instanceof byte[]) {
+        valueBytes.add(((byte[]) value).length);
+        valueCount.increment();
+      }
+    }
+
+    private long approximateBytes() {
+      if (delegate instanceof OffHeapCache) {
+        return ((OffHeapCache) delegate).getUsedBytes();
+      }
+      long count = valueCount.sum();
+      return count == 0 ? -1 : valueBytes.sum() / count * delegate.getSize();
+    }
+  }
+
+}
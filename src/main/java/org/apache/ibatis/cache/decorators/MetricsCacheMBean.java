@@ -0,0 +1,66 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+/**
+ * Management interface of {@link MetricsCache}, exposed through JMX by the
+ * {@link org.apache.ibatis.cache.CacheMetricsRegistry}.
+ *
+ * @since 3.5.2
+ */
+public interface MetricsCacheMBean {
+
+  /**
+   * @return The id of the cache, usually the mapper namespace
+   */
+  String getId();
+
+  /**
+   * @return The number of entries stored in the cache
+   */
+  int getSize();
+
+  long getRequestCount();
+
+  long getHitCount();
+
+  long getMissCount();
+
+  double getHitRatio();
+
+  long getPutCount();
+
+  /**
+   * @return The number of entries dropped by the eviction policy or by expiry, or -1 when it cannot be tracked
+   */
+  long getEvictionCount();
+
+  /**
+   * @return The average number of milliseconds between a miss and the put of the loaded value for the same key
+   */
+  double getAverageLoadTime();
+
+  /**
+   * @return The approximate number of bytes held by the cache, or -1 when values are not stored as bytes
+   */
+  long getApproximateBytes();
+
+  /**
+   * Sets every counter back to zero.
+   */
+  void resetStatistics();
+
+}
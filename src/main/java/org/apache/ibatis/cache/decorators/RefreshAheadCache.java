@@ -0,0 +1,263 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Reloads entries in the background before they get old, so that callers keep reading the current value instead
+ * of waiting for the query once it expires.
+ * <p>
+ * Whoever puts an entry can register a loader for its key, e.g. the executor registers one that runs the query
+ * again. A read of an entry loaded more than {@code refreshAfter} milliseconds ago returns the cached value and
+ * submits the loader to a small bounded thread pool, whose result replaces the entry unless the cache was cleared or
+ * the entry removed meanwhile. Reloads that do not fit in the queue are skipped. Entries without a loader simply
+ * expire.
+ * <p>
+ * Loaders are kept for the {@code size} keys loaded last. Reads look them up without locking.
+ *
+ * @since 3.5.2
+ */
+public class RefreshAheadCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(RefreshAheadCache.class);
+
+  private final Cache delegate;
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private final Map<Object, Loader> loaders = new ConcurrentHashMap<>();
+  // loaders in the order they were set, to drop the oldest ones beyond size
+  private final Deque<Loader> loadOrder = new ArrayDeque<>();
+  private int size = 1024;
+  private long refreshAfter = 60 * 1000;
+  private int refreshThreads = 1;
+  private int queueSize = 1024;
+  private volatile ThreadPoolExecutor refresher;
+
+  public RefreshAheadCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(int size) {
+    synchronized (loadOrder) {
+      this.size = size;
+      trimLoaders();
+    }
+  }
+
+  public long getRefreshAfter() {
+    return refreshAfter;
+  }
+
+  public void setRefreshAfter(long refreshAfter) {
+    this.refreshAfter = refreshAfter;
+  }
+
+  public void setRefreshThreads(int refreshThreads) {
+    this.refreshThreads = refreshThreads;
+  }
+
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  /**
+   * Registers the loader that reloads the value of a key. The value is considered loaded now.
+   *
+   * @param key the key of the entry
+   * @param loader returns the new value, or {@code null} when it cannot be reloaded anymore
+   */
+  public void setLoader(Object key, Callable<?> loader) {
+    Loader newLoader = new Loader(key, loader);
+    synchronized (loadOrder) {
+      loaders.put(key, newLoader);
+      loadOrder.addLast(newLoader);
+      trimLoaders();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (value != null) {
+      Loader loader = loaders.get(key);
+      if (loader != null && System.currentTimeMillis() - loader.loadedAt >= refreshAfter
+          && loader.refreshing.compareAndSet(false, true)) {
+        refresh(key, loader);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    writeLock.lock();
+    try {
+      loaders.remove(key);
+      return delegate.removeObject(key);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    writeLock.lock();
+    try {
+      for (Object key : keys) {
+        loaders.remove(key);
+      }
+      delegate.removeAll(keys);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      synchronized (loadOrder) {
+        loaders.clear();
+        loadOrder.clear();
+      }
+      delegate.clear();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  private void refresh(Object key, Loader loader) {
+    try {
+      refresher().execute(() -> reload(key, loader));
+    } catch (RejectedExecutionException e) {
+      loader.refreshing.set(false);
+    }
+  }
+
+  private void reload(Object key, Loader loader) {
+    try {
+      long loadStart = System.currentTimeMillis();
+      Object value = loader.callable.call();
+      if (value == null) {
+        return;
+      }
+      writeLock.lock();
+      try {
+        // the entry was removed, flushed or loaded again while reloading
+        if (loaders.get(key) != loader) {
+          return;
+        }
+        delegate.putObject(key, value);
+        loader.loadedAt = loadStart;
+      } finally {
+        writeLock.unlock();
+      }
+    } catch (Exception e) {
+      log.warn("Could not refresh an entry of cache " + getId() + ". Cause: " + e);
+    } finally {
+      loader.refreshing.set(false);
+    }
+  }
+
+  private void trimLoaders() {
+    // replaced and removed loaders stay in the order until they come first, so it may hold up to twice the size
+    while (loaders.size() > size || loadOrder.size() > size * 2) {
+      Loader eldest = loadOrder.removeFirst();
+      loaders.remove(eldest.key, eldest);
+    }
+  }
+
+  private ThreadPoolExecutor refresher() {
+    ThreadPoolExecutor executor = refresher;
+    if (executor == null) {
+      synchronized (this) {
+        executor = refresher;
+        if (executor == null) {
+          AtomicInteger threadNumber = new AtomicInteger();
+          executor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 60, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(queueSize), runnable -> {
+                Thread thread = new Thread(runnable, "mybatis-refresh-" + getId() + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+              });
+          executor.allowCoreThreadTimeOut(true);
+          refresher = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private static class Loader {
+    private final Object key;
+    private final Callable<?> callable;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long loadedAt = System.currentTimeMillis();
+
+    Loader(Object key, Callable<?> callable) {
+      this.key = key;
+      this.callable = callable;
+    }
+  }
+
+}
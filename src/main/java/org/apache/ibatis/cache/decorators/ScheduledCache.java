@@ -15,7 +15,11 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -35,7 +39,7 @@ public class ScheduledCache implements Cache {
 
   private final Cache delegate;
   protected long clearInterval;
-  protected long lastClear;
+  protected volatile long lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -69,6 +73,12 @@ public class ScheduledCache implements Cache {
     return clearWhenStale() ? null : delegate.getObject(key);
   }
 
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    clearWhenStale();
+    return delegate.getOrLoad(key, loader);
+  }
+
   @Override
   public Object removeObject(Object key) {
     clearWhenStale();
@@ -81,11 +91,33 @@ public class ScheduledCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    clearWhenStale();
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return clearWhenStale() ? new HashMap<>() : delegate.getAll(keys);
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    clearWhenStale();
+    delegate.removeAll(keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -15,29 +15,42 @@
  */
 package org.apache.ibatis.cache.decorators;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.ObjectStreamClass;
-import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.io.Resources;
 
 /**
+ * Keeps private copies of cached values, so that callers can modify what they get without affecting other callers.
+ * Copies are made by a {@link CacheCodec}, Java serialization by default.
+ *
  * @author Clinton Begin
  */
 public class SerializedCache implements Cache {
 
   private final Cache delegate;
+  private final CacheCodec codec;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JavaSerializationCodec());
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public SerializedCache(Cache delegate, CacheCodec codec) {
     this.delegate = delegate;
+    this.codec = codec;
   }
 
   @Override
@@ -52,17 +65,27 @@ public class SerializedCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
-    if (object == null || object instanceof Serializable) {
-      delegate.putObject(key, serialize((Serializable) object));
-    } else {
-      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-    }
+    delegate.putObject(key, object == null ? null : codec.encode(object));
   }
 
   @Override
   public Object getObject(Object key) {
     Object object = delegate.getObject(key);
-    return object == null ? null : deserialize((byte[]) object);
+    return object == null ? null : codec.decode(object);
+  }
+
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    Object[] loaded = new Object[1];
+    Object object = delegate.getOrLoad(key, k -> {
+      loaded[0] = loader.apply(k);
+      return loaded[0] == null ? null : codec.encode(loaded[0]);
+    });
+    if (loaded[0] != null) {
+      // the caller owns the object it has just loaded, so it does not need a copy
+      return loaded[0];
+    }
+    return object == null ? null : codec.decode(object);
   }
 
   @Override
@@ -75,11 +98,40 @@ public class SerializedCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    Map<Object, Object> encoded = new HashMap<>();
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      Object object = entry.getValue();
+      encoded.put(entry.getKey(), object == null ? null : codec.encode(object));
+    }
+    delegate.putAll(encoded);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> values = new HashMap<>();
+    for (Map.Entry<Object, Object> entry : delegate.getAll(keys).entrySet()) {
+      values.put(entry.getKey(), codec.decode(entry.getValue()));
+    }
+    return values;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -90,28 +142,6 @@ public class SerializedCache implements Cache {
     return delegate.equals(obj);
   }
 
-  private byte[] serialize(Serializable value) {
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-      oos.writeObject(value);
-      oos.flush();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
-    }
-  }
-
-  private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-      result = (Serializable) ois.readObject();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
-  }
-
   public static class CustomObjectInputStream extends ObjectInputStream {
 
     public CustomObjectInputStream(InputStream in) throws IOException {
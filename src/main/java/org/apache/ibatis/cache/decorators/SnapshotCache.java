@@ -0,0 +1,136 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSnapshots;
+import org.apache.ibatis.cache.EvictionListener;
+
+/**
+ * Remembers the keys held by the decorated cache, so that {@link CacheSnapshots} can save the contents of a cache
+ * that cannot be iterated.
+ * <p>
+ * This decorator sits right above the base cache, where it also sees the entries removed by the eviction
+ * decorators. It listens to the evictions of the base cache, which drops entries on its own when it is off heap, and
+ * the keys whose entries are found missing when a snapshot is saved are dropped as well.
+ *
+ * @since 3.5.2
+ */
+public class SnapshotCache implements Cache, EvictionListener {
+
+  private final Cache delegate;
+  private final Set<Object> keys = ConcurrentHashMap.newKeySet();
+
+  public SnapshotCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    keys.add(key);
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+    keys.addAll(entries.keySet());
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    keys.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    if (delegate.removeObject(key, value)) {
+      keys.remove(key);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    this.keys.removeAll(keys);
+    delegate.removeAll(keys);
+  }
+
+  @Override
+  public void clear() {
+    keys.clear();
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  @Override
+  public void evicted(Object key) {
+    forget(key);
+  }
+
+  /**
+   * Drops a key whose entry is no longer in the decorated cache.
+   */
+  public void forget(Object key) {
+    keys.remove(key);
+  }
+
+  /**
+   * @return a live view of the keys put in the decorated cache and not removed since
+   */
+  public Set<Object> getKeys() {
+    return Collections.unmodifiableSet(keys);
+  }
+
+}
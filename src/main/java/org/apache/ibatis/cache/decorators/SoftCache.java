@@ -17,11 +17,11 @@ package org.apache.ibatis.cache.decorators;
 
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Deque;
-import java.util.LinkedList;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * Soft Reference cache decorator
@@ -31,19 +31,26 @@ import org.apache.ibatis.cache.Cache;
  *
  * 通过 JVM 的软引用和弱引用来实现缓存，当 JVM 内存不足时，
  * 会自动清理掉这些缓存，基于 SoftReference 和 WeakReference
+ * <p>
+ * The decorator is thread safe when the decorated cache is: reads only add the value to a ring of hard links, and
+ * the entries whose values were reclaimed are removed by whichever writer finds the cleanup lock free. They are
+ * removed with {@link Cache#removeObject(Object, Object)}, so a value put again for the same key in the meantime is
+ * kept.
  *
  * @author Clinton Begin
  */
 public class SoftCache implements Cache {
-  private final Deque<Object> hardLinksToAvoidGarbageCollection;
+  private volatile HardLinks hardLinksToAvoidGarbageCollection;
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
+  private final ReentrantLock cleanupLock = new ReentrantLock();
   private final Cache delegate;
   private int numberOfHardLinks;
+  private EvictionListener evictionListener;
 
   public SoftCache(Cache delegate) {
     this.delegate = delegate;
     this.numberOfHardLinks = 256;
-    this.hardLinksToAvoidGarbageCollection = new LinkedList<>();
+    this.hardLinksToAvoidGarbageCollection = new HardLinks(numberOfHardLinks);
     this.queueOfGarbageCollectedEntries = new ReferenceQueue<>();
   }
 
@@ -58,9 +65,9 @@ public class SoftCache implements Cache {
     return delegate.getSize();
   }
 
-
   public void setSize(int size) {
     this.numberOfHardLinks = size;
+    this.hardLinksToAvoidGarbageCollection = new HardLinks(size);
   }
 
   @Override
@@ -77,15 +84,12 @@ public class SoftCache implements Cache {
     if (softReference != null) {
       result = softReference.get();
       if (result == null) {
-        delegate.removeObject(key);
-      } else {
-        // See #586 (and #335) modifications need more than a read lock
-        synchronized (hardLinksToAvoidGarbageCollection) {
-          hardLinksToAvoidGarbageCollection.addFirst(result);
-          if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
-            hardLinksToAvoidGarbageCollection.removeLast();
-          }
+        // another thread may have put a new value since the reference was read
+        if (delegate.removeObject(key, softReference)) {
+          evicted(key);
         }
+      } else {
+        hardLinksToAvoidGarbageCollection.add(result);
       }
     }
     return result;
@@ -99,22 +103,50 @@ public class SoftCache implements Cache {
 
   @Override
   public void clear() {
-    synchronized (hardLinksToAvoidGarbageCollection) {
-      hardLinksToAvoidGarbageCollection.clear();
-    }
+    hardLinksToAvoidGarbageCollection.clear();
     removeGarbageCollectedItems();
     delegate.clear();
   }
 
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   * @since 3.5.2
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
   private void removeGarbageCollectedItems() {
-    SoftEntry sv;
-    while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
-      delegate.removeObject(sv.key);
+    if (!cleanupLock.tryLock()) {
+      // another thread is already cleaning up
+      return;
+    }
+    try {
+      SoftEntry sv;
+      while ((sv = (SoftEntry) queueOfGarbageCollectedEntries.poll()) != null) {
+        // the key may have been put again since its value was reclaimed
+        if (delegate.removeObject(sv.key, sv)) {
+          evicted(sv.key);
+        }
+      }
+    } finally {
+      cleanupLock.unlock();
+    }
+  }
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
     }
   }
 
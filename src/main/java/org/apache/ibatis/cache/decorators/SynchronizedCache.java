@@ -15,7 +15,10 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -60,6 +63,40 @@ public class SynchronizedCache implements Cache {
     delegate.clear();
   }
 
+  /**
+   * Gets the entry and, on a miss, puts the loaded value while holding the lock, but runs the loader without it, so
+   * that a slow load does not block the other keys of the cache.
+   */
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    Object value = getObject(key);
+    if (value == null) {
+      try {
+        value = loader.apply(key);
+      } catch (RuntimeException e) {
+        removeObject(key);
+        throw e;
+      }
+      putObject(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized void putAll(Map<?, ?> entries) {
+    delegate.putAll(entries);
+  }
+
+  @Override
+  public synchronized Map<Object, Object> getAll(Collection<?> keys) {
+    return delegate.getAll(keys);
+  }
+
+  @Override
+  public synchronized void removeAll(Collection<?> keys) {
+    delegate.removeAll(keys);
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -75,4 +112,9 @@ public class SynchronizedCache implements Cache {
     return null;
   }
 
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
 }
@@ -0,0 +1,335 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator.
+ * <p>
+ * New keys enter a small LRU window. When the window overflows, its eldest key competes with the eldest key of the
+ * main segmented LRU, and the one with the lower estimated access frequency is evicted. Frequencies are estimated
+ * with a count-min sketch, so keys touched only once by a scan cannot push frequently used keys out.
+ * <p>
+ * Reads do not wait for the policy lock: when it is busy, the access is simply not recorded.
+ *
+ * @since 3.5.2
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int WINDOW_PERCENT = 1;
+  private static final int PROTECTED_PERCENT = 80;
+
+  private final Cache delegate;
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private FrequencySketch sketch;
+  private Map<Object, Object> window;
+  private Map<Object, Object> probation;
+  private Map<Object, Object> protectedKeys;
+  private int windowSize;
+  private int mainSize;
+  private int protectedSize;
+  private EvictionListener evictionListener;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public void setSize(final int size) {
+    evictionLock.lock();
+    try {
+      windowSize = Math.max(1, size * WINDOW_PERCENT / 100);
+      mainSize = Math.max(1, size - windowSize);
+      protectedSize = mainSize * PROTECTED_PERCENT / 100;
+      sketch = new FrequencySketch(size);
+      window = new LinkedHashMap<>(16, .75F, true);
+      probation = new LinkedHashMap<>(16, .75F, true);
+      protectedKeys = new LinkedHashMap<>(16, .75F, true);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      delegate.putObject(key, value);
+      sketch.increment(key);
+      if (!reorder(key)) {
+        window.put(key, key);
+        evictFromWindow();
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    evictionLock.lock();
+    try {
+      delegate.putAll(entries);
+      for (Object key : entries.keySet()) {
+        sketch.increment(key);
+        if (!reorder(key)) {
+          window.put(key, key);
+          evictFromWindow();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = delegate.getObject(key);
+    if (evictionLock.tryLock()) {
+      try {
+        sketch.increment(key);
+        reorder(key);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      forget(key);
+      return delegate.removeObject(key);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      if (delegate.removeObject(key, value)) {
+        forget(key);
+        return true;
+      }
+      return false;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void removeAll(Collection<?> keys) {
+    evictionLock.lock();
+    try {
+      for (Object key : keys) {
+        forget(key);
+      }
+      delegate.removeAll(keys);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      delegate.clear();
+      window.clear();
+      probation.clear();
+      protectedKeys.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return delegate.isThreadSafe();
+  }
+
+  private boolean reorder(Object key) {
+    if (window.get(key) != null || protectedKeys.get(key) != null) {
+      return true;
+    }
+    if (probation.remove(key) != null) {
+      protectedKeys.put(key, key);
+      if (protectedKeys.size() > protectedSize) {
+        Object demoted = removeEldest(protectedKeys);
+        probation.put(demoted, demoted);
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private void evictFromWindow() {
+    while (window.size() > windowSize) {
+      Object candidate = removeEldest(window);
+      if (probation.size() + protectedKeys.size() < mainSize) {
+        probation.put(candidate, candidate);
+        continue;
+      }
+      Map<Object, Object> victims = probation.isEmpty() ? protectedKeys : probation;
+      Object victim = victims.keySet().iterator().next();
+      if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+        victims.remove(victim);
+        delegate.removeObject(victim);
+        evicted(victim);
+        probation.put(candidate, candidate);
+      } else {
+        delegate.removeObject(candidate);
+        evicted(candidate);
+      }
+    }
+  }
+
+  private void forget(Object key) {
+    if (window.remove(key) == null && probation.remove(key) == null) {
+      protectedKeys.remove(key);
+    }
+  }
+
+  private static Object removeEldest(Map<Object, Object> keys) {
+    Iterator<Object> iterator = keys.keySet().iterator();
+    Object eldest = iterator.next();
+    iterator.remove();
+    return eldest;
+  }
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
+    }
+  }
+
+  /**
+   * A count-min sketch of 4-bit counters, sixteen per {@code long}, that halves every counter once the number of
+   * recorded accesses reaches ten times the cache size so that old popularity fades away.
+   */
+  static final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      int maximum = Math.max(maximumSize, 1);
+      int capacity = Math.max(Integer.highestOneBit(maximum - 1) << 1, 8);
+      this.table = new long[capacity];
+      this.tableMask = capacity - 1;
+      this.sampleSize = maximum > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : maximum * 10;
+    }
+
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++additions == sampleSize) {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    private void reset() {
+      int odd = 0;
+      for (int i = 0; i < table.length; i++) {
+        odd += Long.bitCount(table[i] & ONE_MASK);
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions = (additions >>> 1) - (odd >>> 2);
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+
+  }
+
+}
@@ -15,13 +15,17 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Function;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.Invalidation;
+import org.apache.ibatis.cache.invalidation.InvalidationPublisher;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -62,8 +66,19 @@ public class TransactionalCache implements Cache {
   //记录缓存未命中的CacheKey对象：就是我们查询缓存的时候，如果没有，我们加入这个队列进行统计使用
   private final Set<Object> entriesMissedInCache;
 
+  private final InvalidationPublisher publisher;
+
   public TransactionalCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param publisher sends the clears committed by this cache to the other nodes, or {@code null}
+   * @since 3.5.2
+   */
+  public TransactionalCache(Cache delegate, InvalidationPublisher publisher) {
     this.delegate = delegate;
+    this.publisher = publisher;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<>();
     this.entriesMissedInCache = new HashSet<>();
@@ -94,6 +109,19 @@ public class TransactionalCache implements Cache {
     }
   }
 
+  /**
+   * Unlike {@link #putObject(Object, Object)}, the loaded object is put into the cache at once instead of on commit.
+   * It must only be called by sessions that have not written anything yet, whose reads cannot see uncommitted data.
+   * After a {@link #clear()}, it falls back to the buffered get and put.
+   */
+  @Override
+  public Object getOrLoad(Object key, Function<Object, ?> loader) {
+    if (clearOnCommit) {
+      return Cache.super.getOrLoad(key, loader);
+    }
+    return delegate.getOrLoad(key, loader);
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -118,6 +146,9 @@ public class TransactionalCache implements Cache {
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
+      if (publisher != null) {
+        publisher.publish(Invalidation.caches(Collections.singleton(delegate.getId())));
+      }
     }
     flushPendingEntries();
     reset();
@@ -136,23 +167,31 @@ public class TransactionalCache implements Cache {
 
   private void flushPendingEntries() {
     //将待提交的Map缓存 委托给包装的Cache类
-    for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
-    }
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
-        delegate.putObject(entry, null);
+        entriesToAddOnCommit.put(entry, null);
       }
     }
+    if (!entriesToAddOnCommit.isEmpty()) {
+      delegate.putAll(entriesToAddOnCommit);
+    }
   }
 
   private void unlockMissedEntries() {
-    for (Object entry : entriesMissedInCache) {
-      try {
-        delegate.removeObject(entry);
-      } catch (Exception e) {
-        log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
-            + "Consider upgrading your cache adapter to the latest version.  Cause: " + e);
+    if (entriesMissedInCache.isEmpty()) {
+      return;
+    }
+    try {
+      delegate.removeAll(entriesMissedInCache);
+    } catch (Exception e) {
+      // release the keys one by one, so that one failure does not leave the others locked
+      for (Object entry : entriesMissedInCache) {
+        try {
+          delegate.removeObject(entry);
+        } catch (Exception e2) {
+          log.warn("Unexpected exception while notifiying a rollback to the cache adapter."
+              + "Consider upgrading your cache adapter to the latest version.  Cause: " + e2);
+        }
       }
     }
   }
@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.weigher.EstimatingWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
+
+/**
+ * Bounds a cache by the total weight of its values, as estimated by a {@link Weigher}, instead of by the number of
+ * entries. The least recently used entries are removed until the total fits in {@code maxBytes}, and a value
+ * heavier than {@code maxBytes} on its own is not cached at all.
+ * <p>
+ * Entries are only forgotten when they are removed through this decorator, so it must sit below the decorators
+ * that evict or expire entries.
+ *
+ * @since 3.5.2
+ */
+public class WeightedCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Long> weights;
+  private Weigher weigher;
+  private long maxBytes;
+  private long totalBytes;
+  private EvictionListener evictionListener;
+
+  public WeightedCache(Cache delegate) {
+    this.delegate = delegate;
+    this.weights = new LinkedHashMap<>(16, .75F, true);
+    this.weigher = new EstimatingWeigher();
+    this.maxBytes = 64L * 1024 * 1024;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    this.maxBytes = maxBytes;
+    evictIfNeeded();
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * @return the total weight of the cached values
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long weight = weigher.weigh(value);
+    forget(key);
+    if (weight > maxBytes) {
+      delegate.removeObject(key);
+      return;
+    }
+    delegate.putObject(key, value);
+    weights.put(key, weight);
+    totalBytes += weight;
+    evictIfNeeded();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    weights.get(key); //touch
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    forget(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    if (delegate.removeObject(key, value)) {
+      forget(key);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void forget(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalBytes -= weight;
+    }
+  }
+
+  private void evictIfNeeded() {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (totalBytes > maxBytes && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      totalBytes -= eldest.getValue();
+      delegate.removeObject(eldest.getKey());
+      evicted(eldest.getKey());
+    }
+  }
+
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
+    }
+  }
+
+}
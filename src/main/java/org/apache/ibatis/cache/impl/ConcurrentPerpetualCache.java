@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Thread safe counterpart of {@link PerpetualCache} backed by a {@link ConcurrentHashMap}.
+ * <p>
+ * Reads never block. Because the map does not accept {@code null} values, putting a {@code null}
+ * value removes the key, which is indistinguishable from storing {@code null} for callers.
+ * <p>
+ * The cache is only left unsynchronized when every decorator on top of it is thread safe too. The
+ * {@code LRU} and {@code FIFO} evictions, including the default {@code LRU}, keep their order in plain
+ * collections, so a cache using them is still wrapped in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}; pick {@code TINYLFU}, {@code SOFT} or
+ * {@code WEAK} to avoid it.
+ *
+ * @since 3.5.2
+ */
+public class ConcurrentPerpetualCache implements Cache {
+
+  private final String id;
+
+  private final Map<Object, Object> cache = new ConcurrentHashMap<>();
+
+  public ConcurrentPerpetualCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      cache.remove(key);
+    } else {
+      cache.put(key, value);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return cache.get(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return cache.remove(key);
+  }
+
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    return cache.remove(key, value);
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,373 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+
+/**
+ * Cache that keeps its values serialized outside of the Java heap.
+ * <p>
+ * Values are serialized with a {@link JavaSerializationCodec} (byte arrays are stored as they are) and copied
+ * into fixed size blocks carved out of direct {@link ByteBuffer} slabs. Slabs are allocated on demand up to
+ * {@code maxBytes}. Only the keys and a small index entry per key stay on the heap. When there are not enough free
+ * blocks for a new value, the least recently used entries are dropped. Values larger than {@code maxBytes} are not
+ * cached at all.
+ * <p>
+ * Every value read is a new copy, so cached objects cannot be modified by callers.
+ *
+ * @since 3.5.2
+ */
+public class OffHeapCache implements Cache {
+
+  private final String id;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final JavaSerializationCodec codec = new JavaSerializationCodec();
+
+  private long maxBytes = 64L * 1024 * 1024;
+  private int blockSize = 512;
+  private int slabSize = 4 * 1024 * 1024;
+
+  private Map<Object, Entry> index;
+  private ByteBuffer[] slabs;
+  private int blocksPerSlab;
+  private int totalBlocks;
+  private int[] freeBlocks;
+  private int freeCount;
+  private int nextBlock;
+  private EvictionListener evictionListener;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    lock.lock();
+    try {
+      return index == null ? 0 : index.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      remove(key);
+      return;
+    }
+    boolean raw = value instanceof byte[];
+    byte[] bytes = raw ? (byte[]) value : codec.encode(value);
+    lock.lock();
+    try {
+      layoutIfNeeded();
+      int needed = (bytes.length + blockSize - 1) / blockSize;
+      release(index.remove(key));
+      if (needed > totalBlocks) {
+        return;
+      }
+      while (availableBlocks() < needed) {
+        release(removeEldest());
+      }
+      int[] blocks = new int[needed];
+      for (int i = 0; i < needed; i++) {
+        blocks[i] = allocate();
+        int offset = i * blockSize;
+        write(blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset));
+      }
+      index.put(key, new Entry(blocks, bytes.length, raw));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry;
+    byte[] bytes;
+    lock.lock();
+    try {
+      layoutIfNeeded();
+      entry = index.get(key);
+      if (entry == null) {
+        return null;
+      }
+      bytes = read(entry);
+    } finally {
+      lock.unlock();
+    }
+    return entry.raw ? bytes : codec.decode(bytes);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Entry entry;
+    byte[] bytes;
+    lock.lock();
+    try {
+      layoutIfNeeded();
+      entry = index.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      bytes = read(entry);
+      release(entry);
+    } finally {
+      lock.unlock();
+    }
+    return entry.raw ? bytes : codec.decode(bytes);
+  }
+
+  /**
+   * Removes the keys without reading their values back.
+   */
+  @Override
+  public void removeAll(Collection<?> keys) {
+    for (Object key : keys) {
+      remove(key);
+    }
+  }
+
+  private void remove(Object key) {
+    lock.lock();
+    try {
+      layoutIfNeeded();
+      release(index.remove(key));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      layoutIfNeeded();
+      index.clear();
+      freeCount = 0;
+      nextBlock = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param evictionListener told about the entries this cache evicts
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public boolean isThreadSafe() {
+    return true;
+  }
+
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  public void setMaxBytes(long maxBytes) {
+    lock.lock();
+    try {
+      this.maxBytes = maxBytes;
+      slabs = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  public void setBlockSize(int blockSize) {
+    lock.lock();
+    try {
+      this.blockSize = blockSize;
+      slabs = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public void setSlabSize(int slabSize) {
+    lock.lock();
+    try {
+      this.slabSize = slabSize;
+      slabs = null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of off-heap bytes held by cached values, rounded up to whole blocks
+   */
+  public long getUsedBytes() {
+    lock.lock();
+    try {
+      return slabs == null ? 0 : (long) (totalBlocks - availableBlocks()) * blockSize;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void layoutIfNeeded() {
+    if (slabs != null) {
+      return;
+    }
+    if (blockSize <= 0 || slabSize < blockSize || maxBytes < blockSize) {
+      throw new CacheException("Invalid off-heap cache layout for '" + id + "': maxBytes=" + maxBytes
+          + ", slabSize=" + slabSize + ", blockSize=" + blockSize);
+    }
+    blocksPerSlab = slabSize / blockSize;
+    totalBlocks = (int) Math.min(maxBytes / blockSize, Integer.MAX_VALUE);
+    slabs = new ByteBuffer[(totalBlocks + blocksPerSlab - 1) / blocksPerSlab];
+    freeBlocks = new int[16];
+    freeCount = 0;
+    nextBlock = 0;
+    index = new LinkedHashMap<>(16, .75F, true);
+  }
+
+  private int availableBlocks() {
+    return freeCount + totalBlocks - nextBlock;
+  }
+
+  private Entry removeEldest() {
+    Iterator<Map.Entry<Object, Entry>> iterator = index.entrySet().iterator();
+    Map.Entry<Object, Entry> eldest = iterator.next();
+    iterator.remove();
+    evicted(eldest.getKey());
+    return eldest.getValue();
+  }
+
+  private int allocate() {
+    if (freeCount > 0) {
+      return freeBlocks[--freeCount];
+    }
+    int block = nextBlock++;
+    int slab = block / blocksPerSlab;
+    if (slabs[slab] == null) {
+      int blocks = Math.min(blocksPerSlab, totalBlocks - slab * blocksPerSlab);
+      slabs[slab] = ByteBuffer.allocateDirect(blocks * blockSize);
+    }
+    return block;
+  }
+
+  private void release(Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    if (freeBlocks.length < freeCount + entry.blocks.length) {
+      int[] grown = new int[Math.max(freeBlocks.length * 2, freeCount + entry.blocks.length)];
+      System.arraycopy(freeBlocks, 0, grown, 0, freeCount);
+      freeBlocks = grown;
+    }
+    System.arraycopy(entry.blocks, 0, freeBlocks, freeCount, entry.blocks.length);
+    freeCount += entry.blocks.length;
+  }
+
+  private void write(int block, byte[] bytes, int offset, int length) {
+    ByteBuffer slab = slabs[block / blocksPerSlab];
+    ((Buffer) slab).position((block % blocksPerSlab) * blockSize);
+    slab.put(bytes, offset, length);
+  }
+
+  private byte[] read(Entry entry) {
+    byte[] bytes = new byte[entry.length];
+    for (int i = 0; i < entry.blocks.length; i++) {
+      int offset = i * blockSize;
+      read(entry.blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset));
+    }
+    return bytes;
+  }
+
+  private void read(int block, byte[] bytes, int offset, int length) {
+    ByteBuffer slab = slabs[block / blocksPerSlab];
+    ((Buffer) slab).position((block % blocksPerSlab) * blockSize);
+    slab.get(bytes, offset, length);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private void evicted(Object key) {
+    if (evictionListener != null) {
+      evictionListener.evicted(key);
+    }
+  }
+
+  private static class Entry {
+    private final int[] blocks;
+    private final int length;
+    private final boolean raw;
+
+    Entry(int[] blocks, int length, boolean raw) {
+      this.blocks = blocks;
+      this.length = length;
+      this.raw = raw;
+    }
+  }
+
+}
@@ -63,6 +63,11 @@ public class PerpetualCache implements Cache {
     cache.put(key, value);
   }
 
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    cache.putAll(entries);
+  }
+
   @Override
   public Object getObject(Object key) {
     return cache.get(key);
@@ -73,6 +78,11 @@ public class PerpetualCache implements Cache {
     return cache.remove(key);
   }
 
+  @Override
+  public boolean removeObject(Object key, Object value) {
+    return cache.remove(key, value);
+  }
+
   @Override
   public void clear() {
     cache.clear();
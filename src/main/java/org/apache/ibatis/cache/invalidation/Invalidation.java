@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A committed invalidation of second level caches, as sent to the other nodes.
+ *
+ * @since 3.5.2
+ */
+public final class Invalidation {
+
+  public enum Type {
+    /**
+     * The caches with the given ids were cleared.
+     */
+    CACHES,
+    /**
+     * The given tables were written, see {@link org.apache.ibatis.session.CacheInvalidation#TABLE}.
+     */
+    TABLES
+  }
+
+  private final Type type;
+  private final Set<String> names;
+
+  public Invalidation(Type type, Collection<String> names) {
+    this.type = type;
+    this.names = Collections.unmodifiableSet(new LinkedHashSet<>(names));
+  }
+
+  public static Invalidation caches(Collection<String> cacheIds) {
+    return new Invalidation(Type.CACHES, cacheIds);
+  }
+
+  public static Invalidation tables(Collection<String> tables) {
+    return new Invalidation(Type.TABLES, tables);
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public Set<String> getNames() {
+    return names;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Invalidation)) {
+      return false;
+    }
+    Invalidation other = (Invalidation) o;
+    return type == other.type && names.equals(other.names);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * type.hashCode() + names.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return type + " " + names;
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * Sends the second level cache invalidations committed on this node to the other nodes of a cluster, and receives
+ * theirs.
+ * <p>
+ * It is set with the {@code cacheInvalidationPublisher} setting, started by
+ * {@link org.apache.ibatis.session.Configuration#start()} and closed by
+ * {@link org.apache.ibatis.session.Configuration#close()}.
+ * {@link #publish(Invalidation)} is called after each commit that cleared caches or, with
+ * {@code cacheInvalidation=TABLE}, wrote tables. Invalidations received from other nodes are passed to the handler
+ * given to {@link #start(Consumer)}, which applies them without publishing them again. Implementations must not
+ * hand a node its own invalidations back.
+ *
+ * @since 3.5.2
+ */
+public interface InvalidationPublisher {
+
+  /**
+   * Called once with the configuration properties before the publisher is started.
+   *
+   * @param properties the properties of the configuration
+   */
+  default void setProperties(Properties properties) {
+    // NOP
+  }
+
+  /**
+   * Starts receiving invalidations. Calls made while the publisher is already started do nothing.
+   *
+   * @param handler applies the invalidations received from other nodes
+   */
+  void start(Consumer<Invalidation> handler);
+
+  /**
+   * Sends an invalidation committed on this node. It must not block for long, since it is called by the committing
+   * thread.
+   *
+   * @param invalidation the invalidation
+   */
+  void publish(Invalidation invalidation);
+
+  /**
+   * Stops receiving invalidations and releases the resources of the publisher. It can be started again afterwards.
+   */
+  default void close() {
+    // NOP
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Applies the invalidations received from other nodes to the caches of a configuration.
+ *
+ * @since 3.5.2
+ */
+public class InvalidationReceiver implements Consumer<Invalidation> {
+
+  private static final Log log = LogFactory.getLog(InvalidationReceiver.class);
+
+  private final Configuration configuration;
+
+  public InvalidationReceiver(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public void accept(Invalidation invalidation) {
+    if (log.isDebugEnabled()) {
+      log.debug("Applying remote cache invalidation: " + invalidation);
+    }
+    if (invalidation.getType() == Invalidation.Type.TABLES) {
+      configuration.getTableVersions().invalidate(invalidation.getNames());
+      return;
+    }
+    for (String cacheId : invalidation.getNames()) {
+      Cache cache = configuration.hasCache(cacheId) ? configuration.getCache(cacheId)
+          : configuration.getEntityCache(cacheId);
+      if (cache != null) {
+        cache.clear();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Passes invalidations between the configurations of the same JVM that use a publisher of the same group, given by
+ * the {@code cacheInvalidation.group} property ({@code default} when not set).
+ * <p>
+ * Invalidations are applied to the other configurations by the committing thread before {@link #publish} returns.
+ * It is meant for applications with several SqlSessionFactories on the same database and for tests.
+ *
+ * @since 3.5.2
+ */
+public class LoopbackInvalidationPublisher implements InvalidationPublisher {
+
+  private static final Map<String, List<LoopbackInvalidationPublisher>> groups = new ConcurrentHashMap<>();
+
+  private String group = "default";
+  private volatile Consumer<Invalidation> handler;
+
+  public LoopbackInvalidationPublisher() {
+  }
+
+  public LoopbackInvalidationPublisher(String group) {
+    this.group = group;
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+    group = properties.getProperty("cacheInvalidation.group", group);
+  }
+
+  public String getGroup() {
+    return group;
+  }
+
+  @Override
+  public void start(Consumer<Invalidation> handler) {
+    this.handler = handler;
+    groups.compute(group, (k, members) -> {
+      List<LoopbackInvalidationPublisher> joined = members == null ? new CopyOnWriteArrayList<>() : members;
+      if (!joined.contains(this)) {
+        joined.add(this);
+      }
+      return joined;
+    });
+  }
+
+  @Override
+  public void publish(Invalidation invalidation) {
+    List<LoopbackInvalidationPublisher> members = groups.get(group);
+    if (members == null) {
+      return;
+    }
+    for (LoopbackInvalidationPublisher member : members) {
+      Consumer<Invalidation> memberHandler = member.handler;
+      if (member != this && memberHandler != null) {
+        memberHandler.accept(invalidation);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    handler = null;
+    groups.computeIfPresent(group, (k, members) -> {
+      members.remove(this);
+      return members.isEmpty() ? null : members;
+    });
+  }
+
+}
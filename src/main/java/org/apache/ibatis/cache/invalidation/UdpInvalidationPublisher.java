@@ -0,0 +1,283 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Sends invalidations to the other nodes as UDP datagrams.
+ * <p>
+ * Each node listens on the {@code cacheInvalidation.port} property ({@code 0} picks a free port) of the
+ * {@code cacheInvalidation.bindAddress} property (all addresses when not set) and sends to the comma separated
+ * {@code host:port} list of the {@code cacheInvalidation.peers} property. Messages are small lines of text that only
+ * carry cache ids and table names, and a node ignores the messages it sent itself, so peer lists may include the
+ * node itself. UDP does not guarantee delivery: a lost datagram leaves stale entries on a node, so combine it with a
+ * flush interval or time to live when staleness must be bounded.
+ * <p>
+ * Anyone who can reach the port can clear the caches of a node. Either set the same
+ * {@code cacheInvalidation.secret} property on every node, so that messages are signed with HMAC-SHA256 and unsigned
+ * ones are ignored, or bind to an address that only the nodes of the cluster can reach. Messages are not encrypted.
+ *
+ * @since 3.5.2
+ */
+public class UdpInvalidationPublisher implements InvalidationPublisher {
+
+  private static final Log log = LogFactory.getLog(UdpInvalidationPublisher.class);
+
+  private static final String MAGIC = "MBCI1";
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+  private static final int MAX_PAYLOAD = 8192;
+
+  private final String nodeId = UUID.randomUUID().toString();
+  private final List<InetSocketAddress> peers = new CopyOnWriteArrayList<>();
+  private int port;
+  private String bindAddress;
+  private SecretKeySpec secret;
+  private volatile DatagramSocket socket;
+
+  @Override
+  public void setProperties(Properties properties) {
+    port = Integer.parseInt(properties.getProperty("cacheInvalidation.port", "0"));
+    bindAddress = properties.getProperty("cacheInvalidation.bindAddress");
+    String secretValue = properties.getProperty("cacheInvalidation.secret");
+    if (secretValue != null) {
+      setSecret(secretValue);
+    }
+    String peerList = properties.getProperty("cacheInvalidation.peers");
+    if (peerList != null) {
+      setPeers(peerList);
+    }
+  }
+
+  public void setPort(int port) {
+    this.port = port;
+  }
+
+  /**
+   * @param bindAddress the host name or address to receive on, or {@code null} for all addresses
+   */
+  public void setBindAddress(String bindAddress) {
+    this.bindAddress = bindAddress;
+  }
+
+  /**
+   * @param secret the secret shared by the nodes to sign messages, or {@code null} to send them unsigned
+   */
+  public void setSecret(String secret) {
+    this.secret = secret == null ? null : new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM);
+  }
+
+  /**
+   * @return the port this node receives on, once started
+   */
+  public int getLocalPort() {
+    DatagramSocket current = socket;
+    return current == null ? port : current.getLocalPort();
+  }
+
+  /**
+   * @param peerList comma separated {@code host:port} addresses of the nodes to send to
+   */
+  public void setPeers(String peerList) {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (String peer : peerList.split(",")) {
+      String trimmed = peer.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      int colon = trimmed.lastIndexOf(':');
+      if (colon < 0) {
+        throw new CacheException("Invalid cache invalidation peer '" + trimmed + "', expected host:port");
+      }
+      addresses.add(new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+    }
+    peers.clear();
+    peers.addAll(addresses);
+  }
+
+  public void addPeer(InetSocketAddress peer) {
+    peers.add(peer);
+  }
+
+  @Override
+  public synchronized void start(Consumer<Invalidation> handler) {
+    if (socket != null) {
+      return;
+    }
+    InetSocketAddress address = bindAddress == null
+        ? new InetSocketAddress(port) : new InetSocketAddress(bindAddress, port);
+    DatagramSocket receiving;
+    try {
+      receiving = new DatagramSocket(address);
+    } catch (SocketException e) {
+      throw new CacheException("Could not listen for cache invalidations on " + address + ".  Cause: " + e, e);
+    }
+    socket = receiving;
+    String name = "mybatis-cache-invalidation-" + receiving.getLocalPort();
+    Thread receiver = new Thread(() -> receive(receiving, handler), name);
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  @Override
+  public void publish(Invalidation invalidation) {
+    DatagramSocket current = socket;
+    if (current == null) {
+      return;
+    }
+    for (byte[] message : encode(invalidation)) {
+      for (InetSocketAddress peer : peers) {
+        try {
+          current.send(new DatagramPacket(message, message.length, peer));
+        } catch (IOException e) {
+          log.warn("Could not send cache invalidation to " + peer + ".  Cause: " + e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    DatagramSocket current = socket;
+    socket = null;
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  private void receive(DatagramSocket receiving, Consumer<Invalidation> handler) {
+    byte[] buffer = new byte[65535];
+    while (!receiving.isClosed()) {
+      DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+      try {
+        receiving.receive(packet);
+      } catch (IOException e) {
+        if (!receiving.isClosed()) {
+          log.warn("Could not receive cache invalidation.  Cause: " + e);
+        }
+        continue;
+      }
+      Invalidation invalidation = decode(packet.getData(), packet.getLength());
+      if (invalidation != null) {
+        try {
+          handler.accept(invalidation);
+        } catch (RuntimeException e) {
+          log.warn("Could not apply cache invalidation " + invalidation + ".  Cause: " + e);
+        }
+      }
+    }
+  }
+
+  private List<byte[]> encode(Invalidation invalidation) {
+    String header = nodeId + '\n' + invalidation.getType().name();
+    List<byte[]> messages = new ArrayList<>();
+    StringBuilder message = new StringBuilder(header);
+    for (String name : invalidation.getNames()) {
+      if (message.length() > header.length() && message.length() + name.length() * 3 + 1 > MAX_PAYLOAD) {
+        messages.add(sign(message.toString().getBytes(StandardCharsets.UTF_8)));
+        message.setLength(header.length());
+      }
+      message.append('\n').append(name);
+    }
+    messages.add(sign(message.toString().getBytes(StandardCharsets.UTF_8)));
+    return messages;
+  }
+
+  /**
+   * Prefixes a message body with the magic line and the line of its signature, which is empty without a secret.
+   */
+  private byte[] sign(byte[] body) {
+    byte[] signature = secret == null ? new byte[0] : toHex(mac(body)).getBytes(StandardCharsets.US_ASCII);
+    byte[] magic = MAGIC.getBytes(StandardCharsets.US_ASCII);
+    byte[] message = new byte[magic.length + 1 + signature.length + 1 + body.length];
+    System.arraycopy(magic, 0, message, 0, magic.length);
+    message[magic.length] = '\n';
+    System.arraycopy(signature, 0, message, magic.length + 1, signature.length);
+    message[magic.length + 1 + signature.length] = '\n';
+    System.arraycopy(body, 0, message, magic.length + signature.length + 2, body.length);
+    return message;
+  }
+
+  private Invalidation decode(byte[] data, int length) {
+    String message = new String(data, 0, length, StandardCharsets.UTF_8);
+    List<String> lines = Arrays.asList(message.split("\n", -1));
+    if (lines.size() < 4 || !MAGIC.equals(lines.get(0))) {
+      log.warn("Ignoring unknown cache invalidation message");
+      return null;
+    }
+    if (secret != null) {
+      int bodyOffset = MAGIC.length() + lines.get(1).length() + 2;
+      byte[] body = Arrays.copyOfRange(data, bodyOffset, length);
+      byte[] expected = toHex(mac(body)).getBytes(StandardCharsets.US_ASCII);
+      if (!MessageDigest.isEqual(expected, lines.get(1).getBytes(StandardCharsets.US_ASCII))) {
+        log.warn("Ignoring cache invalidation message with an invalid signature");
+        return null;
+      }
+    }
+    if (nodeId.equals(lines.get(2))) {
+      return null;
+    }
+    Invalidation.Type type;
+    try {
+      type = Invalidation.Type.valueOf(lines.get(3));
+    } catch (IllegalArgumentException e) {
+      log.warn("Ignoring cache invalidation of unknown type " + lines.get(3));
+      return null;
+    }
+    return new Invalidation(type, lines.subList(4, lines.size()));
+  }
+
+  private byte[] mac(byte[] body) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(secret);
+      mac.update(body);
+      return mac.doFinal();
+    } catch (GeneralSecurityException e) {
+      throw new CacheException("Could not sign cache invalidation.  Cause: " + e, e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+}
@@ -0,0 +1,170 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.temporal.Temporal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Estimates the heap size of result objects without serializing them.
+ * <p>
+ * Strings, boxed values, dates and arrays are sized from their length. Collections and maps add a slot per element
+ * plus the size of their elements, and other objects add a slot per readable property (as found by their
+ * {@link Reflector}) plus the size of the property values. Large collections are sized from a sample of their
+ * elements, so a list of 200,000 rows costs about as much to weigh as a list of a few dozen. Lazy loading proxies are
+ * not read, so weighing never triggers a query.
+ *
+ * @since 3.5.2
+ */
+public class EstimatingWeigher implements Weigher {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 8;
+  private static final int SAMPLE_SIZE = 32;
+  private static final int MAX_DEPTH = 16;
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final Invoker[] NO_GETTERS = new Invoker[0];
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final Map<Class<?>, Invoker[]> getters = new ConcurrentHashMap<>();
+
+  @Override
+  public long weigh(Object value) {
+    return weigh(value, new IdentityHashMap<>(), 0);
+  }
+
+  private long weigh(Object value, Map<Object, Object> visited, int depth) {
+    if (value == null || value instanceof Enum || value instanceof Class) {
+      return 0;
+    }
+    if (value instanceof String) {
+      return OBJECT_HEADER + 24 + 2L * ((String) value).length();
+    }
+    if (value instanceof BigDecimal) {
+      return OBJECT_HEADER + 40 + ((BigDecimal) value).unscaledValue().bitLength() / 8;
+    }
+    if (value instanceof BigInteger) {
+      return OBJECT_HEADER + 24 + ((BigInteger) value).bitLength() / 8;
+    }
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+      return OBJECT_HEADER + 8;
+    }
+    if (value instanceof Date || value instanceof Temporal) {
+      return OBJECT_HEADER + 16;
+    }
+    Class<?> type = value.getClass();
+    if (type.isArray() && type.getComponentType().isPrimitive()) {
+      return OBJECT_HEADER + (long) Array.getLength(value) * primitiveSize(type.getComponentType());
+    }
+    if (depth >= MAX_DEPTH || visited.put(value, value) != null) {
+      return 0;
+    }
+    if (type.isArray()) {
+      Object[] array = (Object[]) value;
+      return OBJECT_HEADER + (long) REFERENCE * array.length + weighElements(Arrays.asList(array), visited, depth);
+    }
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      return OBJECT_HEADER * 2 + (long) REFERENCE * 2 * collection.size() + weighElements(collection, visited, depth);
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      return OBJECT_HEADER * 3 + (long) (OBJECT_HEADER + REFERENCE * 4) * map.size()
+          + weighElements(map.keySet(), visited, depth) + weighElements(map.values(), visited, depth);
+    }
+    Invoker[] properties = getters.computeIfAbsent(type, this::resolveGetters);
+    long weight = OBJECT_HEADER + (long) REFERENCE * properties.length;
+    for (Invoker property : properties) {
+      try {
+        weight += weigh(property.invoke(value, NO_ARGUMENTS), visited, depth + 1);
+      } catch (Exception e) {
+        // an unreadable property only counts as a slot
+      }
+    }
+    return weight;
+  }
+
+  private long weighElements(Collection<?> elements, Map<Object, Object> visited, int depth) {
+    int size = elements.size();
+    if (size == 0) {
+      return 0;
+    }
+    int step = Math.max(1, size / SAMPLE_SIZE);
+    long weight = 0;
+    int sampled = 0;
+    if (elements instanceof List && elements instanceof RandomAccess) {
+      List<?> list = (List<?>) elements;
+      for (int i = 0; i < size; i += step) {
+        weight += weigh(list.get(i), visited, depth + 1);
+        sampled++;
+      }
+    } else {
+      Iterator<?> iterator = elements.iterator();
+      for (int i = 0; iterator.hasNext(); i++) {
+        Object element = iterator.next();
+        if (i % step == 0) {
+          weight += weigh(element, visited, depth + 1);
+          sampled++;
+        }
+      }
+    }
+    return sampled == size ? weight : weight * size / sampled;
+  }
+
+  private Invoker[] resolveGetters(Class<?> type) {
+    String name = type.getName();
+    if (WriteReplaceInterface.class.isAssignableFrom(type) || name.startsWith("java.") || name.startsWith("javax.")
+        || name.startsWith("sun.") || name.startsWith("jdk.")) {
+      return NO_GETTERS;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    String[] names = reflector.getGetablePropertyNames();
+    Invoker[] invokers = new Invoker[names.length];
+    for (int i = 0; i < names.length; i++) {
+      invokers[i] = reflector.getGetInvoker(names[i]);
+    }
+    return invokers;
+  }
+
+  private static int primitiveSize(Class<?> type) {
+    if (type == long.class || type == double.class) {
+      return 8;
+    } else if (type == int.class || type == float.class) {
+      return 4;
+    } else if (type == short.class || type == char.class) {
+      return 2;
+    }
+    return 1;
+  }
+
+}
@@ -0,0 +1,53 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+import java.io.Serializable;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+
+/**
+ * Weighs values by the length of their Java serialized form. Byte arrays, which is what read/write caches store
+ * with the default codec, are weighed by their length without serializing them again. Values that cannot be
+ * serialized are estimated by an {@link EstimatingWeigher}.
+ *
+ * @since 3.5.2
+ */
+public class SerializedSizeWeigher implements Weigher {
+
+  private final JavaSerializationCodec codec = new JavaSerializationCodec();
+  private final EstimatingWeigher estimatingWeigher = new EstimatingWeigher();
+
+  @Override
+  public long weigh(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    }
+    if (value instanceof Serializable) {
+      try {
+        return codec.encode(value).length;
+      } catch (CacheException e) {
+        // some nested object is not serializable
+      }
+    }
+    return estimatingWeigher.weigh(value);
+  }
+
+}
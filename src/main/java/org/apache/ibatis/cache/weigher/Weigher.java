@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+/**
+ * Estimates how many bytes a cached value takes, for the caches bounded with {@code maxBytes}
+ * (see {@link org.apache.ibatis.cache.decorators.WeightedCache}).
+ * <p>
+ * Implementations must have a public no-args constructor and be thread safe.
+ *
+ * @since 3.5.2
+ */
+public interface Weigher {
+
+  /**
+   * @param value the value being cached, which is the stored form of the value (e.g. a byte array) when the cache
+   *          is read/write, may be {@code null}
+   * @return the approximate number of bytes taken by the value, never negative
+   */
+  long weigh(Object value);
+
+}
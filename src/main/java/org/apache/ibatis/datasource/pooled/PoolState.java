@@ -35,6 +35,8 @@ public class PoolState {
   protected long accumulatedWaitTime = 0;
   protected long hadToWaitCount = 0;
   protected long badConnectionCount = 0;
+  protected long closedStatementCacheHitCount = 0;
+  protected long closedStatementCacheMissCount = 0;
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
@@ -74,6 +76,30 @@ public class PoolState {
   }
 
 
+  /**
+   * @return the number of prepared statements reused from the statement caches of the connections
+   * @since 3.5.2
+   */
+  public synchronized long getStatementCacheHitCount() {
+    long hits = closedStatementCacheHitCount;
+    for (PreparedStatementCache cache : statementCaches()) {
+      hits += cache.getHitCount();
+    }
+    return hits;
+  }
+
+  /**
+   * @return the number of prepared statements that were not found in the statement caches of the connections
+   * @since 3.5.2
+   */
+  public synchronized long getStatementCacheMissCount() {
+    long misses = closedStatementCacheMissCount;
+    for (PreparedStatementCache cache : statementCaches()) {
+      misses += cache.getMissCount();
+    }
+    return misses;
+  }
+
   public synchronized int getIdleConnectionCount() {
     return idleConnections.size();
   }
@@ -82,6 +108,33 @@ public class PoolState {
     return activeConnections.size();
   }
 
+  /**
+   * Closes the cached statements of a connection that leaves the pool, keeping its statistics.
+   */
+  synchronized void closeStatements(PooledConnection conn) {
+    PreparedStatementCache cache = conn.getStatementCache();
+    if (cache != null) {
+      closedStatementCacheHitCount += cache.getHitCount();
+      closedStatementCacheMissCount += cache.getMissCount();
+      cache.clear();
+    }
+  }
+
+  private List<PreparedStatementCache> statementCaches() {
+    List<PreparedStatementCache> caches = new ArrayList<>();
+    for (PooledConnection conn : idleConnections) {
+      if (conn.getStatementCache() != null) {
+        caches.add(conn.getStatementCache());
+      }
+    }
+    for (PooledConnection conn : activeConnections) {
+      if (conn.getStatementCache() != null) {
+        caches.add(conn.getStatementCache());
+      }
+    }
+    return caches;
+  }
+
   @Override
   public synchronized String toString() {
     StringBuilder builder = new StringBuilder();
@@ -97,6 +150,7 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -108,6 +162,8 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -19,6 +19,7 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
@@ -29,12 +30,14 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
   private final int hashCode;
   private final PooledDataSource dataSource;
   private final Connection realConnection;
   private final Connection proxyConnection;
+  private final PreparedStatementCache statementCache;
   private long checkoutTimestamp;
   private long createdTimestamp;
   private long lastUsedTimestamp;
@@ -48,6 +51,19 @@ class PooledConnection implements InvocationHandler {
    * @param dataSource - the dataSource that the connection is from
    */
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, dataSource.newStatementCache());
+  }
+
+  /**
+   * Constructor for a PooledConnection that wraps a connection that already was in the pool, keeping its statements.
+   *
+   * @param connection - the connection that is to be presented as a pooled connection
+   * @param dataSource - the dataSource that the connection is from
+   * @param statementCache - the prepared statements of the connection, or null if they are not cached
+   * @since 3.5.2
+   */
+  public PooledConnection(Connection connection, PooledDataSource dataSource, PreparedStatementCache statementCache) {
+    this.statementCache = statementCache;
     this.hashCode = connection.hashCode();
     this.realConnection = connection;
     this.dataSource = dataSource;
@@ -64,6 +80,10 @@ class PooledConnection implements InvocationHandler {
     valid = false;
   }
 
+  boolean isUsable() {
+    return valid;
+  }
+
   /**
    * Method to see if the connection is usable.
    *
@@ -91,6 +111,16 @@ class PooledConnection implements InvocationHandler {
     return proxyConnection;
   }
 
+  /**
+   * Getter for the prepared statements cached for the real connection.
+   *
+   * @return The cache, or null if prepared statements are not cached
+   * @since 3.5.2
+   */
+  public PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
   /**
    * Gets the hashcode of the real connection (or 0 if it is null).
    *
@@ -242,6 +272,9 @@ class PooledConnection implements InvocationHandler {
         // throw an SQLException instead of a Runtime
         checkConnection();
       }
+      if (statementCache != null && PREPARE_STATEMENT.equals(methodName)) {
+        return prepareStatement(method, args);
+      }
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
       throw ExceptionUtil.unwrapThrowable(t);
@@ -249,6 +282,15 @@ class PooledConnection implements InvocationHandler {
 
   }
 
+  private PreparedStatement prepareStatement(Method method, Object[] args) throws Exception {
+    Object key = PreparedStatementCache.keyOf(args);
+    PreparedStatement statement = statementCache.take(key);
+    if (statement == null) {
+      statement = (PreparedStatement) method.invoke(realConnection, args);
+    }
+    return new PooledPreparedStatement(this, statementCache, key, statement).getProxyStatement();
+  }
+
   /**
    * 校验当前连接是有效状态
    * @throws SQLException
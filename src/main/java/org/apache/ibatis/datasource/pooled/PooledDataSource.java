@@ -53,6 +53,7 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected int poolPreparedStatementCacheSize;
 
   private int expectedConnectionTypeCode;
 
@@ -235,6 +236,18 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The number of idle prepared statements kept open per connection, so that they are reused by every session that
+   * borrows the connection afterwards. 0, the default, disables the cache.
+   *
+   * @param poolPreparedStatementCacheSize the maximum number of cached statements per connection
+   * @since 3.5.2
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -295,6 +308,10 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
@@ -305,6 +322,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
           conn.invalidate();
+          state.closeStatements(conn);
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -319,6 +337,7 @@ public class PooledDataSource implements DataSource {
         try {
           PooledConnection conn = state.idleConnections.remove(i - 1);
           conn.invalidate();
+          state.closeStatements(conn);
 
           Connection realConn = conn.getRealConnection();
           if (!realConn.getAutoCommit()) {
@@ -339,6 +358,10 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
+  PreparedStatementCache newStatementCache() {
+    return poolPreparedStatementCacheSize > 0 ? new PreparedStatementCache(poolPreparedStatementCacheSize) : null;
+  }
+
   private int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
@@ -353,7 +376,7 @@ public class PooledDataSource implements DataSource {
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -367,6 +390,7 @@ public class PooledDataSource implements DataSource {
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
+          state.closeStatements(conn);
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
             log.debug("Closed connection " + conn.getRealHashCode() + ".");
@@ -378,6 +402,7 @@ public class PooledDataSource implements DataSource {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
         state.badConnectionCount++;
+        state.closeStatements(conn);
       }
     }
   }
@@ -429,7 +454,8 @@ public class PooledDataSource implements DataSource {
                   log.debug("Bad connection. Could not roll back");
                 }
               }
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this,
+                  oldestActiveConnection.getStatementCache());
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
               oldestActiveConnection.invalidate();
@@ -472,6 +498,7 @@ public class PooledDataSource implements DataSource {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
             state.badConnectionCount++;
+            state.closeStatements(conn);
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Proxy of a prepared statement that goes back to the {@link PreparedStatementCache} of its physical connection when
+ * it is closed. The settings changed while it was in use, like the fetch size or the query timeout, are restored so
+ * that the next user finds the statement as the driver created it. The result sets it returned, including generated
+ * keys, and the current result set of the statement are closed before it goes back.
+ *
+ * @since 3.5.2
+ */
+class PooledPreparedStatement implements InvocationHandler {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  private final PooledConnection connection;
+  private final PreparedStatementCache cache;
+  private final Object key;
+  private final PreparedStatement realStatement;
+  private final PreparedStatement proxyStatement;
+  private final Map<Method, Object> changedSettings = new HashMap<>();
+  private final List<ResultSet> resultSets = new ArrayList<>();
+  private boolean batched;
+  private boolean closed;
+
+  PooledPreparedStatement(PooledConnection connection, PreparedStatementCache cache, Object key,
+      PreparedStatement statement) {
+    this.connection = connection;
+    this.cache = cache;
+    this.key = key;
+    this.realStatement = statement;
+    this.proxyStatement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES,
+        this);
+  }
+
+  PreparedStatement getProxyStatement() {
+    return proxyStatement;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (Object.class.equals(method.getDeclaringClass())) {
+      return method.invoke(this, args);
+    }
+    String methodName = method.getName();
+    if ("close".equals(methodName)) {
+      close();
+      return null;
+    } else if ("isClosed".equals(methodName)) {
+      return closed;
+    }
+    if (closed) {
+      throw new SQLException("Error accessing PooledPreparedStatement. Statement is closed.");
+    }
+    if ("getConnection".equals(methodName)) {
+      return connection.getProxyConnection();
+    } else if ("addBatch".equals(methodName)) {
+      batched = true;
+    } else if (isSetting(method) && !changedSettings.containsKey(method)) {
+      Method getter = Statement.class.getMethod("g" + methodName.substring(1));
+      changedSettings.put(method, getter.invoke(realStatement));
+    }
+    Object result;
+    try {
+      result = method.invoke(realStatement, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+    if (result instanceof ResultSet) {
+      resultSets.add((ResultSet) result);
+    }
+    return result;
+  }
+
+  private void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (!connection.isUsable()) {
+      discard();
+      return;
+    }
+    try {
+      closeResultSets();
+      realStatement.clearParameters();
+      if (batched) {
+        realStatement.clearBatch();
+      }
+      for (Map.Entry<Method, Object> setting : changedSettings.entrySet()) {
+        setting.getKey().invoke(realStatement, setting.getValue());
+      }
+      realStatement.clearWarnings();
+    } catch (Exception e) {
+      discard();
+      return;
+    }
+    cache.release(key, realStatement);
+  }
+
+  private void closeResultSets() throws SQLException {
+    // the statement stays open in the cache, so its result sets would otherwise stay open too
+    ResultSet current = realStatement.getResultSet();
+    if (current != null) {
+      current.close();
+    }
+    for (ResultSet resultSet : resultSets) {
+      resultSet.close();
+    }
+    resultSets.clear();
+  }
+
+  private void discard() {
+    try {
+      realStatement.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+  private static boolean isSetting(Method method) {
+    switch (method.getName()) {
+      case "setFetchSize":
+      case "setFetchDirection":
+      case "setQueryTimeout":
+      case "setMaxRows":
+      case "setLargeMaxRows":
+      case "setMaxFieldSize":
+        return method.getParameterCount() == 1;
+      default:
+        return false;
+    }
+  }
+
+}
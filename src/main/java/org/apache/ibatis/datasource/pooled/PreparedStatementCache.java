@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the idle prepared statements of one physical connection.
+ * <p>
+ * A statement is taken out of the cache while it is in use and put back when it is closed, so it outlives the
+ * {@link java.sql.Connection} proxy it was prepared through and is reused by every session that borrows the same
+ * physical connection afterwards. Statements pushed out of the cache are closed.
+ *
+ * @since 3.5.2
+ */
+public class PreparedStatementCache {
+
+  private final int maxSize;
+  private final Map<Key, PreparedStatement> statements = new LinkedHashMap<>(16, .75F, true);
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public PreparedStatementCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Removes an idle statement from the cache.
+   *
+   * @param key the key built by {@link #keyOf(Object[])}
+   * @return the statement or null if none was cached with that key
+   */
+  public synchronized PreparedStatement take(Object key) {
+    PreparedStatement statement = statements.remove(key);
+    if (statement == null) {
+      missCount++;
+    } else {
+      hitCount++;
+    }
+    return statement;
+  }
+
+  /**
+   * Puts a statement that is no longer in use back in the cache, closing the least recently used one if the cache is
+   * full. When a statement with the same key is already cached, the released statement is closed instead.
+   *
+   * @param key the key built by {@link #keyOf(Object[])}
+   * @param statement the statement
+   */
+  public void release(Object key, PreparedStatement statement) {
+    PreparedStatement closed = statement;
+    synchronized (this) {
+      if (!statements.containsKey(key)) {
+        statements.put((Key) key, statement);
+        closed = null;
+        if (statements.size() > maxSize) {
+          Iterator<PreparedStatement> iterator = statements.values().iterator();
+          closed = iterator.next();
+          iterator.remove();
+          evictionCount++;
+        }
+      }
+    }
+    close(closed);
+  }
+
+  /**
+   * Closes every idle statement.
+   */
+  public void clear() {
+    PreparedStatement[] closed;
+    synchronized (this) {
+      closed = statements.values().toArray(new PreparedStatement[0]);
+      statements.clear();
+    }
+    for (PreparedStatement statement : closed) {
+      close(statement);
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized int getSize() {
+    return statements.size();
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Builds the key of a statement from the arguments passed to {@code Connection.prepareStatement}: the SQL and the
+   * result set type, concurrency, holdability or key generation flags, whichever the overload takes.
+   *
+   * @param args the arguments
+   * @return the key
+   */
+  public static Object keyOf(Object[] args) {
+    return new Key(args);
+  }
+
+  private static void close(PreparedStatement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  private static final class Key {
+    private final Object[] args;
+    private final int hashCode;
+
+    Key(Object[] args) {
+      this.args = args.clone();
+      this.hashCode = Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || o instanceof Key && hashCode == ((Key) o).hashCode && Arrays.deepEquals(args, ((Key) o).args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.deepToString(args);
+    }
+  }
+
+}
@@ -68,7 +68,8 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<>();
-    this.localCache = new PerpetualCache("LocalCache");
+    this.localCache = createLocalCache("LocalCache", configuration);
+    // trimmed along with the local cache
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
     this.closed = false;
     this.configuration = configuration;
@@ -171,6 +172,8 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        trimLocalCache();
       }
     }
     return list;
@@ -212,15 +215,16 @@ public abstract class BaseExecutor implements Executor {
      * 4.所有的入参
      *
      */
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // statement id, offset, limit, sql, parameters and environment id
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
 
-
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
+    MetaObject metaObject = null;
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
       if (parameterMapping.getMode() != ParameterMode.OUT) {
@@ -233,7 +237,9 @@ public abstract class BaseExecutor implements Executor {
         } else if (typeHandlerRegistry.hasTypeHandler(parameterObject.getClass())) {
           value = parameterObject;
         } else {
-          MetaObject metaObject = configuration.newMetaObject(parameterObject);
+          if (metaObject == null) {
+            metaObject = configuration.newMetaObject(parameterObject);
+          }
           value = metaObject.getValue(propertyName);
         }
         cacheKey.update(value);
@@ -285,6 +291,19 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  private static LocalCache createLocalCache(String id, Configuration configuration) {
+    if (configuration == null) {
+      return new LocalCache(id, null, null);
+    }
+    return new LocalCache(id, configuration.getLocalCacheSize(), configuration.getLocalCacheMaxBytes());
+  }
+
+  private void trimLocalCache() {
+    if (localCache instanceof LocalCache) {
+      ((LocalCache) localCache).trim(localOutputParameterCache::removeObject);
+    }
+  }
+
   protected abstract int doUpdate(MappedStatement ms, Object parameter)
       throws SQLException;
 
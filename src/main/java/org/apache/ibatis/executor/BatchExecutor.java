@@ -15,13 +15,22 @@
  */
 package org.apache.ibatis.executor;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +39,8 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -49,6 +60,10 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
+  private final List<BatchResult> flushedResultList = new ArrayList<>();
+  private final Map<Object, Integer> batchIndexes = new HashMap<>();
+  private int pendingCount;
   private String currentSql;
   private MappedStatement currentStatement;
 
@@ -62,27 +77,59 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final BatchResult batchResult;
+    int index = indexOfBatch(ms, sql);
+    if (index >= 0) {
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
+      MultiRowInsert multiRowInsert = multiRowInsertList.get(index);
+      if (multiRowInsert != null) {
+        multiRowInsert.add(handler);
+      } else {
+        Statement stmt = statementList.get(index);
+        applyTransactionTimeout(stmt);
+        handler.parameterize(stmt);//fix Issues 322
+        handler.batch(stmt);
+      }
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      if (configuration.isBatchGrouping() && statementList.size() >= configuration.getBatchGroupLimit()) {
+        autoFlush();
+      }
+      MultiRowInsert multiRowInsert = newMultiRowInsert(ms, sql);
+      Statement stmt = null;
+      if (multiRowInsert != null) {
+        multiRowInsert.add(handler);
+      } else {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+        handler.batch(stmt);
+      }
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      multiRowInsertList.add(multiRowInsert);
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
+      if (configuration.isBatchGrouping()) {
+        batchIndexes.put(new SimpleImmutableEntry<>(ms, sql), statementList.size() - 1);
+      }
+    }
+    pendingCount++;
+    if (isFlushDue(batchResult)) {
+      autoFlush();
     }
-    handler.batch(stmt);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  private int indexOfBatch(MappedStatement ms, String sql) {
+    if (configuration.isBatchGrouping()) {
+      Integer index = batchIndexes.get(new SimpleImmutableEntry<>(ms, sql));
+      return index == null ? -1 : index;
+    }
+    return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+  }
+
   @Override
   public <E> List<E> doQuery(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql)
       throws SQLException {
@@ -115,29 +162,57 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
+        closeStatements();
         return Collections.emptyList();
       }
+      List<BatchResult> results = new ArrayList<>(flushedResultList);
+      results.addAll(executeStatements());
+      return results;
+    } finally {
+      flushedResultList.clear();
+    }
+  }
+
+  private boolean isFlushDue(BatchResult batchResult) {
+    Integer flushSize = configuration.getBatchFlushSize();
+    Integer pendingSize = configuration.getBatchFlushPendingSize();
+    return flushSize != null && batchResult.getParameterObjects().size() >= flushSize
+        || pendingSize != null && pendingCount >= pendingSize;
+  }
+
+  private void autoFlush() throws SQLException {
+    List<BatchResult> results = executeStatements();
+    if (configuration.getBatchFlushListener() == null) {
+      flushedResultList.addAll(results);
+    }
+  }
+
+  private List<BatchResult> executeStatements() throws SQLException {
+    try {
+      List<BatchResult> results = new ArrayList<>();
       for (int i = 0, n = statementList.size(); i < n; i++) {
         Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
         BatchResult batchResult = batchResultList.get(i);
+        List<Object> parameterObjects = batchResult.getParameterObjects();
         try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
-            }
+          MultiRowInsert multiRowInsert = multiRowInsertList.get(i);
+          if (multiRowInsert != null) {
+            batchResult.setUpdateCounts(multiRowInsert.execute(parameterObjects));
+          } else {
+            applyTransactionTimeout(stmt);
+            batchResult.setUpdateCounts(stmt.executeBatch());
+            processGeneratedKeys(batchResult.getMappedStatement(), stmt, parameterObjects);
+            // Close statement to close cursor #1109
+            closeStatement(stmt);
+          }
+          BatchFlushListener listener = configuration.getBatchFlushListener();
+          if (listener != null) {
+            listener.flushed(batchResult);
+          }
+          if (!configuration.isBatchRetainParameters()) {
+            parameterObjects.clear();
           }
-          // Close statement to close cursor #1109
-          closeStatement(stmt);
         } catch (BatchUpdateException e) {
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
@@ -156,13 +231,250 @@ public class BatchExecutor extends BaseExecutor {
       }
       return results;
     } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      closeStatements();
+    }
+  }
+
+  private void processGeneratedKeys(MappedStatement ms, Statement stmt, List<Object> parameterObjects) throws SQLException {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+      Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+      jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+    } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+      for (Object parameter : parameterObjects) {
+        keyGenerator.processAfter(this, ms, stmt, parameter);
+      }
+    }
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    for (MultiRowInsert multiRowInsert : multiRowInsertList) {
+      if (multiRowInsert != null) {
+        multiRowInsert.close();
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
     }
+    currentSql = null;
+    statementList.clear();
+    multiRowInsertList.clear();
+    batchResultList.clear();
+    batchIndexes.clear();
+    pendingCount = 0;
+  }
+
+  private MultiRowInsert newMultiRowInsert(MappedStatement ms, String sql) {
+    Integer maxRows = configuration.getBatchInsertRows();
+    if (maxRows == null || maxRows < 2 || ms.getSqlCommandType() != SqlCommandType.INSERT) {
+      return null;
+    }
+    InsertValuesSql insertValuesSql = InsertValuesSql.parse(sql);
+    if (insertValuesSql == null) {
+      return null;
+    }
+    int parametersPerRow = insertValuesSql.getParametersPerRow();
+    int rows = parametersPerRow == 0 ? maxRows
+        : Math.min(maxRows, configuration.getBatchInsertMaxParameters() / parametersPerRow);
+    return rows < 2 ? null : new MultiRowInsert(ms, insertValuesSql, rows);
+  }
+
+  /**
+   * Rewrites the rows added with the same single row insert into inserts of {@code rows} rows each. Full statements
+   * are added to one JDBC batch, the remaining rows are inserted by a last, shorter statement. The parameters of each
+   * row are recorded when the row is added, so that the parameter object can be changed afterwards. If a type handler
+   * calls a statement method other than a parameter setter, that row and the next ones are added to a JDBC batch of
+   * the original statement instead.
+   */
+  private class MultiRowInsert {
+
+    private final MappedStatement ms;
+    private final InsertValuesSql insertValuesSql;
+    private final int rows;
+    private final List<List<Object[]>> pendingRows = new ArrayList<>();
+    private Object parameterObject;
+    private PreparedStatement fullStatement;
+    private PreparedStatement lastStatement;
+    private PreparedStatement plainStatement;
+
+    MultiRowInsert(MappedStatement ms, InsertValuesSql insertValuesSql, int rows) {
+      this.ms = ms;
+      this.insertValuesSql = insertValuesSql;
+      this.rows = rows;
+    }
+
+    void add(StatementHandler handler) throws SQLException {
+      if (plainStatement != null) {
+        applyTransactionTimeout(plainStatement);
+        handler.parameterize(plainStatement);
+        plainStatement.addBatch();
+        return;
+      }
+      ParameterRecorder recorder = new ParameterRecorder(getConnection(ms.getStatementLog()));
+      try {
+        handler.parameterize(recorder.newStatement());
+      } catch (SQLException | RuntimeException e) {
+        if (!recorder.isUnsupported()) {
+          throw e;
+        }
+        batchPlain(handler);
+        return;
+      }
+      pendingRows.add(recorder.getParameters());
+      parameterObject = handler.getBoundSql().getParameterObject();
+      if (pendingRows.size() == rows) {
+        if (fullStatement == null) {
+          fullStatement = prepare(rows);
+        } else {
+          applyTransactionTimeout(fullStatement);
+        }
+        parameterize(fullStatement);
+        fullStatement.addBatch();
+      }
+    }
+
+    /**
+     * Adds the pending rows and the row of the given handler to a batch of the original statement, which then takes
+     * the next rows too. The rows already in full statements stay there, so the rows keep their order.
+     */
+    private void batchPlain(StatementHandler handler) throws SQLException {
+      Connection connection = getConnection(ms.getStatementLog());
+      plainStatement = (PreparedStatement) handler.prepare(connection, transaction.getTimeout());
+      for (List<Object[]> parameters : pendingRows) {
+        replay(plainStatement, parameters, 0);
+        plainStatement.addBatch();
+      }
+      pendingRows.clear();
+      handler.parameterize(plainStatement);
+      plainStatement.addBatch();
+    }
+
+    int[] execute(List<Object> parameterObjects) throws SQLException {
+      int[] updateCounts = new int[parameterObjects.size()];
+      int row = 0;
+      if (fullStatement != null) {
+        applyTransactionTimeout(fullStatement);
+        for (int statementCount : fullStatement.executeBatch()) {
+          row = spreadUpdateCount(statementCount, rows, updateCounts, row);
+        }
+        processGeneratedKeys(ms, fullStatement, parameterObjects.subList(0, row));
+      }
+      if (plainStatement != null) {
+        applyTransactionTimeout(plainStatement);
+        int[] plainCounts = plainStatement.executeBatch();
+        System.arraycopy(plainCounts, 0, updateCounts, row, plainCounts.length);
+        processGeneratedKeys(ms, plainStatement, parameterObjects.subList(row, parameterObjects.size()));
+      } else if (!pendingRows.isEmpty()) {
+        int lastRows = pendingRows.size();
+        lastStatement = prepare(lastRows);
+        parameterize(lastStatement);
+        lastStatement.addBatch();
+        spreadUpdateCount(lastStatement.executeBatch()[0], lastRows, updateCounts, row);
+        processGeneratedKeys(ms, lastStatement, parameterObjects.subList(row, row + lastRows));
+      }
+      close();
+      return updateCounts;
+    }
+
+    void close() {
+      closeStatement(fullStatement);
+      closeStatement(lastStatement);
+      closeStatement(plainStatement);
+      fullStatement = null;
+      lastStatement = null;
+      plainStatement = null;
+      pendingRows.clear();
+    }
+
+    private PreparedStatement prepare(int rowCount) throws SQLException {
+      BoundSql boundSql = new BoundSql(configuration, insertValuesSql.getSql(rowCount), Collections.emptyList(),
+          parameterObject);
+      StatementHandler handler = configuration.newStatementHandler(BatchExecutor.this, ms, parameterObject,
+          RowBounds.DEFAULT, null, boundSql);
+      return (PreparedStatement) handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+    }
+
+    private void parameterize(PreparedStatement statement) throws SQLException {
+      int offset = 0;
+      for (List<Object[]> parameters : pendingRows) {
+        replay(statement, parameters, offset);
+        offset += insertValuesSql.getParametersPerRow();
+      }
+      pendingRows.clear();
+    }
+
+    private void replay(PreparedStatement statement, List<Object[]> parameters, int offset) throws SQLException {
+      for (Object[] parameter : parameters) {
+        Method method = (Method) parameter[0];
+        Object[] args = ((Object[]) parameter[1]).clone();
+        args[0] = (Integer) args[0] + offset;
+        try {
+          method.invoke(statement, args);
+        } catch (Exception e) {
+          Throwable cause = ExceptionUtil.unwrapThrowable(e);
+          throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause);
+        }
+      }
+    }
+
+  }
+
+  private static int spreadUpdateCount(int statementCount, int rows, int[] updateCounts, int start) {
+    int rowCount;
+    if (statementCount == Statement.EXECUTE_FAILED) {
+      rowCount = Statement.EXECUTE_FAILED;
+    } else {
+      rowCount = statementCount == rows ? 1 : Statement.SUCCESS_NO_INFO;
+    }
+    Arrays.fill(updateCounts, start, start + rows, rowCount);
+    return start + rows;
+  }
+
+  /**
+   * Records the parameters set by a parameter handler on a statement proxy, as method and arguments pairs.
+   */
+  private static class ParameterRecorder implements InvocationHandler {
+
+    private final Connection connection;
+    private final List<Object[]> parameters = new ArrayList<>();
+    private boolean unsupported;
+
+    ParameterRecorder(Connection connection) {
+      this.connection = connection;
+    }
+
+    PreparedStatement newStatement() {
+      return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+          new Class<?>[] { PreparedStatement.class }, this);
+    }
+
+    List<Object[]> getParameters() {
+      return parameters;
+    }
+
+    /**
+     * @return whether a method that cannot be recorded was called
+     */
+    boolean isUnsupported() {
+      return unsupported;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == PreparedStatement.class && method.getName().startsWith("set")
+          && method.getParameterCount() > 0 && method.getParameterTypes()[0] == int.class) {
+        parameters.add(new Object[] { method, args });
+        return null;
+      } else if ("getConnection".equals(method.getName())) {
+        return connection;
+      } else if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, args);
+      }
+      unsupported = true;
+      throw new SQLFeatureNotSupportedException("Method " + method.getName()
+          + " is not supported while recording the parameters of a multi-row insert.");
+    }
+
   }
 
 }
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Receives the results of the batch executor as soon as each batch statement is executed, whether the flush was asked
+ * for or triggered by the {@code batchFlushSize} and {@code batchFlushPendingSize} settings.
+ * <p>
+ * Results of flushes triggered by those settings are handed only to the listener, so that a long running batch does not
+ * accumulate them. Without a listener, they are returned by the next explicit flush.
+ *
+ * @since 3.5.2
+ */
+public interface BatchFlushListener {
+
+  /**
+   * Called after a batch statement was executed and its generated keys were assigned. The parameter objects of the
+   * result are still available, even when {@code batchRetainParameters} is disabled.
+   *
+   * @param batchResult the executed statement and its update counts
+   */
+  void flushed(BatchResult batchResult);
+
+}
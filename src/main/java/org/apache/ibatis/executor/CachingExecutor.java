@@ -16,18 +16,32 @@
 package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheMetricsRegistry;
+import org.apache.ibatis.cache.TableVersions;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.MetricsCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.invalidation.Invalidation;
+import org.apache.ibatis.cache.invalidation.InvalidationPublisher;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
@@ -42,10 +56,25 @@ import org.apache.ibatis.transaction.Transaction;
 public class CachingExecutor implements Executor {
 
   private final Executor delegate;
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TransactionalCacheManager tcm;
+  private final InvalidationPublisher publisher;
+  private final Set<String> writtenTables = new HashSet<>();
+  private TableVersions tableVersions;
+  private final Map<Cache, Set<CacheKey>> writtenEntities = new HashMap<>();
+  private boolean dirty;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param publisher sends the invalidations committed by this executor to the other nodes, or {@code null}
+   * @since 3.5.2
+   */
+  public CachingExecutor(Executor delegate, InvalidationPublisher publisher) {
     this.delegate = delegate;
+    this.publisher = publisher;
+    this.tcm = new TransactionalCacheManager(publisher);
     delegate.setExecutorWrapper(this);
   }
 
@@ -58,10 +87,15 @@ public class CachingExecutor implements Executor {
   public void close(boolean forceRollback) {
     try {
       //issues #499, #524 and #573
+      dirty = false;
       if (forceRollback) {
         tcm.rollback();
+        writtenTables.clear();
+        writtenEntities.clear();
       } else {
         tcm.commit();
+        invalidateWrittenTables();
+        evictWrittenEntities();
       }
     } finally {
       delegate.close(forceRollback);
@@ -75,8 +109,16 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
-    return delegate.update(ms, parameterObject);
+    dirty = true;
+    if (isTableInvalidation(ms) && ms.isFlushCacheRequired() && ms.getSqlCommandType() != SqlCommandType.SELECT) {
+      recordWrittenTables(ms, parameterObject);
+    } else {
+      flushCacheIfRequired(ms);
+    }
+    int updated = delegate.update(ms, parameterObject);
+    // after the update, so that generated keys are known
+    recordWrittenEntity(ms, parameterObject);
+    return updated;
   }
 
   @Override
@@ -92,6 +134,7 @@ public class CachingExecutor implements Executor {
     return delegate.queryCursor(ms, parameter, rowBounds);
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public <E> List<E> query(MappedStatement ms, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql)
       throws SQLException {
@@ -103,11 +146,43 @@ public class CachingExecutor implements Executor {
        */
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, boundSql);
-        @SuppressWarnings("unchecked")
-        List<E> list = (List<E>) tcm.getObject(cache, key);
-        if (list == null) {
-          list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+        Cache entityCache = ms.getEntityType() == null ? null : ms.getConfiguration().getEntityCache(cache.getId());
+        if (entityCache != null && rowBounds == RowBounds.DEFAULT) {
+          CacheKey entityKey = createEntityKey(ms, parameterObject);
+          if (entityKey != null) {
+            return queryEntity(entityCache, entityKey, ms, parameterObject, rowBounds, key, boundSql);
+          }
+        }
+        CacheKey cacheKey = key;
+        if (isTableInvalidation(ms)) {
+          Set<String> tables = ms.getTables(boundSql);
+          if (isWrittenInTransaction(tables)) {
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          }
+          cacheKey = ms.getConfiguration().getTableVersions().versionedKey(key, tables);
+        }
+        List<E> list;
+        boolean loaded;
+        if (dirty || !ms.getConfiguration().isCachePutOnLoad()) {
+          // results may be uncommitted or rolled back, so they are only put on commit
+          list = (List<E>) tcm.getObject(cache, cacheKey);
+          loaded = list == null;
+          if (loaded) {
+            long start = System.nanoTime();
+            list = delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+            recordLoad(ms, cache, System.nanoTime() - start);
+            tcm.putObject(cache, cacheKey, list); // issue #578 and #116
+          }
+        } else {
+          boolean[] missed = new boolean[1];
+          list = (List<E>) loadThrough(cache, cacheKey, k -> {
+            missed[0] = true;
+            return delegate.query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          });
+          loaded = missed[0];
+        }
+        if (loaded && cache instanceof RefreshAheadCache) {
+          ((RefreshAheadCache) cache).setLoader(cacheKey, new StatementReloader(ms, parameterObject, rowBounds, key, boundSql));
         }
         return list;
       }
@@ -123,7 +198,10 @@ public class CachingExecutor implements Executor {
   @Override
   public void commit(boolean required) throws SQLException {
     delegate.commit(required);
+    dirty = false;
     tcm.commit();
+    invalidateWrittenTables();
+    evictWrittenEntities();
   }
 
   @Override
@@ -132,7 +210,35 @@ public class CachingExecutor implements Executor {
       delegate.rollback(required);
     } finally {
       if (required) {
+        dirty = false;
         tcm.rollback();
+        writtenTables.clear();
+        writtenEntities.clear();
+      }
+    }
+  }
+
+  private Object loadThrough(Cache cache, CacheKey key, SqlLoader loader) throws SQLException {
+    try {
+      return tcm.getOrLoad(cache, key, k -> {
+        try {
+          return loader.load(k);
+        } catch (SQLException e) {
+          throw new LoadException(e);
+        }
+      });
+    } catch (LoadException e) {
+      throw e.getCause();
+    }
+  }
+
+  private void recordLoad(MappedStatement ms, Cache cache, long nanos) {
+    Configuration configuration = ms.getConfiguration();
+    if (configuration.isCacheMetricsEnabled()) {
+      // the value is put on commit, so its load time is reported here rather than measured by the cache
+      MetricsCache metrics = CacheMetricsRegistry.getMetrics(configuration.getCacheMetricsScope(), cache.getId());
+      if (metrics != null) {
+        metrics.recordLoad(nanos);
       }
     }
   }
@@ -174,9 +280,167 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private boolean isTableInvalidation(MappedStatement ms) {
+    return ms.getConfiguration().getCacheInvalidation() == CacheInvalidation.TABLE;
+  }
+
+  private void recordWrittenTables(MappedStatement ms, Object parameterObject) {
+    Set<String> tables = ms.getTables();
+    if (tables == null) {
+      tables = ms.getTables(ms.getBoundSql(parameterObject));
+    }
+    if (tables.isEmpty()) {
+      writtenTables.add(TableVersions.ALL_TABLES);
+    } else {
+      writtenTables.addAll(tables);
+    }
+    tableVersions = ms.getConfiguration().getTableVersions();
+  }
+
+  private boolean isWrittenInTransaction(Set<String> tables) {
+    if (writtenTables.isEmpty()) {
+      return false;
+    }
+    if (tables.isEmpty() || writtenTables.contains(TableVersions.ALL_TABLES)) {
+      return true;
+    }
+    for (String table : tables) {
+      if (writtenTables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void invalidateWrittenTables() {
+    if (!writtenTables.isEmpty()) {
+      tableVersions.invalidate(writtenTables);
+      if (publisher != null) {
+        publisher.publish(Invalidation.tables(writtenTables));
+      }
+      writtenTables.clear();
+    }
+  }
+
+  private <E> List<E> queryEntity(Cache entityCache, CacheKey entityKey, MappedStatement ms, Object parameterObject,
+      RowBounds rowBounds, CacheKey key, BoundSql boundSql) throws SQLException {
+    Set<CacheKey> written = writtenEntities.get(entityCache);
+    if (written != null && written.contains(entityKey)) {
+      return delegate.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+    }
+    @SuppressWarnings("unchecked")
+    List<E> list = (List<E>) tcm.getObject(entityCache, entityKey);
+    if (list == null) {
+      long start = System.nanoTime();
+      list = delegate.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+      recordLoad(ms, entityCache, System.nanoTime() - start);
+      if (list.size() == 1) {
+        tcm.putObject(entityCache, entityKey, list);
+      }
+    }
+    return list;
+  }
+
+  private void recordWrittenEntity(MappedStatement ms, Object parameterObject) {
+    Cache cache = ms.getCache();
+    if (cache == null || !ms.isFlushCacheRequired() || ms.getSqlCommandType() == SqlCommandType.SELECT) {
+      return;
+    }
+    Cache entityCache = ms.getConfiguration().getEntityCache(cache.getId());
+    if (entityCache == null) {
+      return;
+    }
+    CacheKey entityKey = null;
+    if (ms.getEntityType() != null && ms.getEntityType().isInstance(parameterObject)) {
+      entityKey = createEntityKey(ms, parameterObject);
+    }
+    if (entityKey != null) {
+      writtenEntities.computeIfAbsent(entityCache, k -> new HashSet<>()).add(entityKey);
+    } else {
+      // the written entity is not known
+      tcm.clear(entityCache);
+    }
+  }
+
+  private CacheKey createEntityKey(MappedStatement ms, Object parameterObject) {
+    if (parameterObject == null) {
+      return null;
+    }
+    Configuration configuration = ms.getConfiguration();
+    List<String> idProperties = ms.getEntityIdProperties();
+    if (idProperties == null) {
+      // a write, keyed like the select of its entity
+      MappedStatement entityStatement = configuration.getEntityStatement(ms.getCache().getId(), ms.getEntityType());
+      if (entityStatement == null) {
+        return null;
+      }
+      idProperties = entityStatement.getEntityIdProperties();
+    }
+    CacheKey entityKey = new CacheKey(idProperties.size() + 1);
+    entityKey.update(ms.getEntityType().getName());
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+      if (idProperties.size() != 1) {
+        return null;
+      }
+      entityKey.update(parameterObject);
+      return entityKey;
+    }
+    MetaObject metaObject = configuration.newMetaObject(parameterObject);
+    for (String idProperty : idProperties) {
+      if (!metaObject.hasGetter(idProperty)) {
+        return null;
+      }
+      Object value = metaObject.getValue(idProperty);
+      if (value == null) {
+        return null;
+      }
+      entityKey.update(value);
+    }
+    return entityKey;
+  }
+
+  private void evictWrittenEntities() {
+    if (!writtenEntities.isEmpty()) {
+      for (Map.Entry<Cache, Set<CacheKey>> entry : writtenEntities.entrySet()) {
+        entry.getKey().removeAll(entry.getValue());
+      }
+      if (publisher != null) {
+        // entity keys are not sent, so the other nodes clear the whole entity caches
+        List<String> cacheIds = new ArrayList<>();
+        for (Cache entityCache : writtenEntities.keySet()) {
+          cacheIds.add(entityCache.getId());
+        }
+        publisher.publish(Invalidation.caches(cacheIds));
+      }
+      writtenEntities.clear();
+    }
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
   }
 
+  @FunctionalInterface
+  private interface SqlLoader {
+    Object load(Object key) throws SQLException;
+  }
+
+  /**
+   * Carries a {@link SQLException} of a query through {@link Cache#getOrLoad}.
+   */
+  private static class LoadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    LoadException(SQLException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized SQLException getCause() {
+      return (SQLException) super.getCause();
+    }
+  }
+
 }
@@ -0,0 +1,162 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * A single row {@code INSERT ... VALUES (...)} statement that can be repeated into a multi-row insert.
+ *
+ * @since 3.5.2
+ */
+final class InsertValuesSql {
+
+  private final String head;
+  private final String row;
+  private final int parametersPerRow;
+
+  private InsertValuesSql(String head, String row, int parametersPerRow) {
+    this.head = head;
+    this.row = row;
+    this.parametersPerRow = parametersPerRow;
+  }
+
+  /**
+   * Parses an insert statement.
+   *
+   * @param sql the SQL
+   * @return the parsed statement, or null if the SQL is not an insert with exactly one row of values and nothing
+   *         after it
+   */
+  static InsertValuesSql parse(String sql) {
+    String trimmed = sql.trim();
+    if (!startsWithKeyword(trimmed, 0, "INSERT")) {
+      return null;
+    }
+    int values = -1;
+    int depth = 0;
+    for (int i = 0; i < trimmed.length(); i++) {
+      char c = trimmed.charAt(i);
+      if (c == '\'' || c == '"') {
+        i = skipQuoted(trimmed, i);
+        if (i < 0) {
+          return null;
+        }
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && values < 0 && startsWithKeyword(trimmed, i, "VALUES")) {
+        values = i + "VALUES".length();
+      }
+    }
+    if (values < 0) {
+      return null;
+    }
+    int start = values;
+    while (start < trimmed.length() && Character.isWhitespace(trimmed.charAt(start))) {
+      start++;
+    }
+    int end = closingParenthesis(trimmed, start);
+    if (end < 0) {
+      return null;
+    }
+    String tail = trimmed.substring(end + 1).trim();
+    if (!tail.isEmpty() && !";".equals(tail)) {
+      return null;
+    }
+    String head = trimmed.substring(0, start);
+    String row = trimmed.substring(start, end + 1);
+    if (countParameters(head) > 0) {
+      return null;
+    }
+    return new InsertValuesSql(head, row, countParameters(row));
+  }
+
+  int getParametersPerRow() {
+    return parametersPerRow;
+  }
+
+  /**
+   * @param rows the number of rows
+   * @return the insert statement repeating the row of values
+   */
+  String getSql(int rows) {
+    StringBuilder sql = new StringBuilder(head.length() + rows * (row.length() + 2));
+    sql.append(head);
+    for (int i = 0; i < rows; i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append(row);
+    }
+    return sql.toString();
+  }
+
+  private static boolean startsWithKeyword(String sql, int index, String keyword) {
+    int end = index + keyword.length();
+    return sql.regionMatches(true, index, keyword, 0, keyword.length())
+        && (index == 0 || !Character.isJavaIdentifierPart(sql.charAt(index - 1)))
+        && (end == sql.length() || !Character.isJavaIdentifierPart(sql.charAt(end)));
+  }
+
+  private static int skipQuoted(String sql, int start) {
+    char quote = sql.charAt(start);
+    for (int i = start + 1; i < sql.length(); i++) {
+      if (sql.charAt(i) == quote) {
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+          i++;
+        } else {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  private static int closingParenthesis(String sql, int start) {
+    if (start >= sql.length() || sql.charAt(start) != '(') {
+      return -1;
+    }
+    int depth = 0;
+    for (int i = start; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"') {
+        i = skipQuoted(sql, i);
+        if (i < 0) {
+          return -1;
+        }
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int countParameters(String sql) {
+    int count = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"') {
+        i = skipQuoted(sql, i);
+      } else if (c == '?') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.EstimatingWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
+
+/**
+ * Session local cache that can be bounded by number of entries and by estimated size.
+ * <p>
+ * Entries are never dropped while they are put, because nested queries and deferred loads of the running query rely
+ * on them. The executor calls {@link #trim()} once the outermost query completes, which drops the least recently
+ * used entries until the bounds are met again.
+ *
+ * @since 3.5.2
+ */
+class LocalCache extends PerpetualCache {
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final Weigher weigher;
+  private final Map<Object, Long> usage = new LinkedHashMap<>(16, .75F, true);
+  private long totalBytes;
+
+  LocalCache(String id, Integer maxEntries, Long maxBytes) {
+    super(id);
+    this.maxEntries = maxEntries == null ? Integer.MAX_VALUE : maxEntries;
+    this.maxBytes = maxBytes == null ? Long.MAX_VALUE : maxBytes;
+    this.weigher = maxBytes == null ? null : new EstimatingWeigher();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value);
+    if (isBounded()) {
+      long weight = weigher == null ? 0 : weigher.weigh(value);
+      Long previous = usage.put(key, weight);
+      totalBytes += weight - (previous == null ? 0 : previous);
+    }
+  }
+
+  @Override
+  public void putAll(Map<?, ?> entries) {
+    for (Map.Entry<?, ?> entry : entries.entrySet()) {
+      putObject(entry.getKey(), entry.getValue());
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    if (isBounded()) {
+      usage.get(key); //touch
+    }
+    return super.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = usage.remove(key);
+    if (weight != null) {
+      totalBytes -= weight;
+    }
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    usage.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * Drops the least recently used entries until the cache is within its bounds.
+   *
+   * @param evicted called with the key of each dropped entry
+   */
+  void trim(Consumer<Object> evicted) {
+    Iterator<Map.Entry<Object, Long>> iterator = usage.entrySet().iterator();
+    while ((usage.size() > maxEntries || totalBytes > maxBytes) && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      totalBytes -= eldest.getValue();
+      super.removeObject(eldest.getKey());
+      evicted.accept(eldest.getKey());
+    }
+  }
+
+  private boolean isBounded() {
+    return maxEntries != Integer.MAX_VALUE || maxBytes != Long.MAX_VALUE;
+  }
+
+}
@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.concurrent.Callable;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Runs a cached query again in its own transaction, bypassing the second level cache, so that a
+ * {@link org.apache.ibatis.cache.decorators.RefreshAheadCache} can reload the entry in the background.
+ *
+ * @since 3.5.2
+ */
+class StatementReloader implements Callable<Object> {
+
+  private final MappedStatement ms;
+  private final Object parameterObject;
+  private final RowBounds rowBounds;
+  private final CacheKey key;
+  private final BoundSql boundSql;
+
+  StatementReloader(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql) {
+    this.ms = ms;
+    this.parameterObject = parameterObject;
+    this.rowBounds = rowBounds;
+    this.key = key;
+    this.boundSql = boundSql;
+  }
+
+  @Override
+  public Object call() throws Exception {
+    Executor executor = newExecutor();
+    try {
+      if (!key.equals(executor.createCacheKey(ms, parameterObject, rowBounds, boundSql))) {
+        // the parameter object was modified after the query, it does not match the cached entry anymore
+        return null;
+      }
+      return executor.query(ms, parameterObject, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+    } finally {
+      executor.close(false);
+    }
+  }
+
+  private Executor newExecutor() {
+    final Configuration configuration = ms.getConfiguration();
+    final Environment environment = configuration.getEnvironment();
+    if (environment == null) {
+      throw new ExecutorException("Could not reload cached statement.  Environment was not configured.");
+    }
+    final DataSource ds = environment.getDataSource();
+    if (ds == null) {
+      throw new ExecutorException("Could not reload cached statement.  DataSource was not configured.");
+    }
+    final Transaction tx = environment.getTransactionFactory().newTransaction(ds, null, false);
+    // a caching executor would return the entry being refreshed
+    Executor executor = new SimpleExecutor(configuration, tx);
+    for (Interceptor interceptor : configuration.getInterceptors()) {
+      executor = (Executor) interceptor.plugin(executor);
+    }
+    return executor;
+  }
+
+}
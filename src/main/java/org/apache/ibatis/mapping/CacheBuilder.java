@@ -24,13 +24,29 @@ import java.util.Properties;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheMetricsRegistry;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.CacheSnapshots;
+import org.apache.ibatis.cache.codec.CacheCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.CompressedCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.GenerationalCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MetricsCache;
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.EstimatingWeigher;
+import org.apache.ibatis.cache.weigher.Weigher;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -42,10 +58,21 @@ public class CacheBuilder {
   private Class<? extends Cache> implementation;
   private final List<Class<? extends Cache>> decorators;
   private Integer size;
+  private Long maxBytes;
+  private Class<? extends Weigher> weigher;
+  private Integer compressThreshold;
   private Long clearInterval;
+  private Long timeToLive;
+  private Long timeToIdle;
+  private Long refreshAfter;
   private boolean readWrite;
+  private Class<? extends CacheCodec> codec;
   private Properties properties;
   private boolean blocking;
+  private boolean generational;
+  private boolean metrics;
+  private String metricsScope = "default";
+  private CacheSnapshots snapshots;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -74,34 +101,145 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder maxBytes(Long maxBytes) {
+    this.maxBytes = maxBytes;
+    return this;
+  }
+
+  public CacheBuilder weigher(Class<? extends Weigher> weigher) {
+    this.weigher = weigher;
+    return this;
+  }
+
+  public CacheBuilder compressThreshold(Integer compressThreshold) {
+    this.compressThreshold = compressThreshold;
+    return this;
+  }
+
+  public CacheBuilder timeToLive(Long timeToLive) {
+    this.timeToLive = timeToLive;
+    return this;
+  }
+
+  public CacheBuilder timeToIdle(Long timeToIdle) {
+    this.timeToIdle = timeToIdle;
+    return this;
+  }
+
+  public CacheBuilder refreshAfter(Long refreshAfter) {
+    this.refreshAfter = refreshAfter;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
   }
 
+  public CacheBuilder codec(Class<? extends CacheCodec> codec) {
+    this.codec = codec;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
   }
 
+  public CacheBuilder generational(boolean generational) {
+    this.generational = generational;
+    return this;
+  }
+
+  public CacheBuilder metrics(boolean metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  /**
+   * @param metricsScope the scope of the {@link CacheMetricsRegistry} the metrics are registered in
+   * @since 3.5.2
+   */
+  public CacheBuilder metricsScope(String metricsScope) {
+    this.metricsScope = metricsScope;
+    return this;
+  }
+
+  public CacheBuilder snapshots(CacheSnapshots snapshots) {
+    this.snapshots = snapshots;
+    return this;
+  }
+
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
   }
 
+  /**
+   * Returns a builder of another cache that keeps its entries like this one: with the same implementation, eviction,
+   * size, maxBytes, flush interval, expiry, compression, copies, metrics and properties. Blocking, refreshing,
+   * generational and snapshot options are not carried over.
+   *
+   * @param id the id of the other cache
+   * @since 3.5.2
+   */
+  public CacheBuilder derive(String id) {
+    CacheBuilder builder = new CacheBuilder(id);
+    builder.implementation = implementation;
+    builder.decorators.addAll(decorators);
+    builder.size = size;
+    builder.maxBytes = maxBytes;
+    builder.weigher = weigher;
+    builder.compressThreshold = compressThreshold;
+    builder.clearInterval = clearInterval;
+    builder.timeToLive = timeToLive;
+    builder.timeToIdle = timeToIdle;
+    builder.readWrite = readWrite;
+    builder.codec = codec;
+    builder.metrics = metrics;
+    builder.metricsScope = metricsScope;
+    builder.properties = properties;
+    return builder;
+  }
+
   public Cache build() {
+    if (snapshots != null && generational) {
+      // snapshots would hold the generation of each key, which is not known after a restart
+      throw new CacheException("Cache '" + id + "' cannot be both generational and saved to snapshots.");
+    }
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
     // issue #352, do not apply decorators to custom caches
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    if (isStandardBaseCache(cache)) {
+      Cache baseCache = cache;
+      MetricsCache.Tracker tracker = null;
+      if (metrics) {
+        tracker = new MetricsCache.Tracker(cache);
+        cache = tracker;
+      }
+      SnapshotCache snapshotCache = null;
+      if (snapshots != null && snapshots.isEnabled()) {
+        snapshotCache = new SnapshotCache(cache);
+        cache = snapshotCache;
+      }
+      EvictionListener evictionListener = newEvictionListener(tracker, snapshotCache);
+      setEvictionListener(baseCache, evictionListener);
+      cache = setEvictionListener(setWeight(cache), evictionListener);
+      cache = setEvictionListener(setExpiry(cache), evictionListener);
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        setEvictionListener(cache, evictionListener);
+      }
+      cache = setStandardDecorators(cache, tracker, snapshotCache);
+    } else {
+      if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
+        cache = new LoggingCache(cache);
+      }
+      if (metrics) {
+        cache = setMetrics(cache, null);
       }
-      cache = setStandardDecorators(cache);
-    } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
     }
     return cache;
   }
@@ -115,24 +253,107 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private boolean isStandardBaseCache(Cache cache) {
+    Class<?> cacheClass = cache.getClass();
+    return PerpetualCache.class.equals(cacheClass) || ConcurrentPerpetualCache.class.equals(cacheClass)
+        || OffHeapCache.class.equals(cacheClass);
+  }
+
+  private Cache setWeight(Cache cache) {
+    if (maxBytes == null) {
+      return cache;
+    }
+    // below expiry and eviction, so that the entries they remove are no longer weighed
+    WeightedCache weightedCache = new WeightedCache(cache);
+    weightedCache.setWeigher(newWeigherInstance());
+    weightedCache.setMaxBytes(maxBytes);
+    return weightedCache;
+  }
+
+  private Cache setExpiry(Cache cache) {
+    if (timeToLive == null && timeToIdle == null) {
+      return cache;
+    }
+    // wrap the base cache so that evictions made by the decorators above also drop expiry times
+    ExpiringCache expiringCache = new ExpiringCache(cache);
+    if (timeToLive != null) {
+      expiringCache.setTimeToLive(timeToLive);
+    }
+    if (timeToIdle != null) {
+      expiringCache.setTimeToIdle(timeToIdle);
+    }
+    return expiringCache;
+  }
+
+  private EvictionListener newEvictionListener(MetricsCache.Tracker tracker, SnapshotCache snapshotCache) {
+    if (tracker == null || snapshotCache == null) {
+      return tracker != null ? tracker : snapshotCache;
+    }
+    return key -> {
+      tracker.evicted(key);
+      snapshotCache.evicted(key);
+    };
+  }
+
+  private Cache setEvictionListener(Cache cache, EvictionListener evictionListener) {
+    if (evictionListener != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("evictionListener")) {
+        metaCache.setValue("evictionListener", evictionListener);
+      }
+    }
+    return cache;
+  }
+
+  private Cache setMetrics(Cache cache, MetricsCache.Tracker tracker) {
+    MetricsCache metricsCache = new MetricsCache(cache, tracker);
+    CacheMetricsRegistry.register(metricsScope, metricsCache);
+    return metricsCache;
+  }
+
+  private Cache setStandardDecorators(Cache cache, MetricsCache.Tracker tracker, SnapshotCache snapshotCache) {
     try {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
+      if (generational) {
+        cache = new GenerationalCache(cache);
+      }
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
+      if (compressThreshold != null) {
+        // below the serialized cache, so that it compresses the bytes of its copies
+        cache = new CompressedCache(cache);
+        ((CompressedCache) cache).setThreshold(compressThreshold);
+      }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = new SerializedCache(cache, newCodecInstance());
       }
       cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      if (!cache.isThreadSafe()) {
+        cache = new SynchronizedCache(cache);
+      }
+      if (metrics) {
+        cache = setMetrics(cache, tracker);
+      }
+      if (snapshotCache != null) {
+        // snapshots read and write below the blocking cache, which would hold a lock on every miss
+        snapshots.register(cache, snapshotCache);
+      }
       if (blocking) {
         cache = new BlockingCache(cache);
       }
+      if (refreshAfter != null) {
+        // on top, so that reads of entries being refreshed never block
+        cache = new RefreshAheadCache(cache);
+        ((RefreshAheadCache) cache).setRefreshAfter(refreshAfter);
+        if (size != null) {
+          ((RefreshAheadCache) cache).setSize(size);
+        }
+      }
       return cache;
     } catch (Exception e) {
       throw new CacheException("Error building standard cache decorators.  Cause: " + e, e);
@@ -186,6 +407,28 @@ public class CacheBuilder {
     }
   }
 
+  private CacheCodec newCodecInstance() {
+    if (codec == null) {
+      return new JavaSerializationCodec();
+    }
+    try {
+      return codec.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache codec (" + codec + "). Cause: " + e, e);
+    }
+  }
+
+  private Weigher newWeigherInstance() {
+    if (weigher == null) {
+      return new EstimatingWeigher();
+    }
+    try {
+      return weigher.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache weigher (" + weigher + "). Cause: " + e, e);
+    }
+  }
+
   private Cache newBaseCacheInstance(Class<? extends Cache> cacheClass, String id) {
     Constructor<? extends Cache> cacheConstructor = getBaseCacheConstructor(cacheClass);
     try {
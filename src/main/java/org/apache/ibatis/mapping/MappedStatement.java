@@ -18,6 +18,7 @@ package org.apache.ibatis.mapping;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -65,6 +66,9 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> tables;
+  private Class<?> entityType;
+  private List<String> entityIdProperties;
 
   MappedStatement() {
     // constructor disabled
@@ -183,6 +187,23 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.2
+     */
+    public Builder tables(Set<String> tables) {
+      mappedStatement.tables = tables;
+      return this;
+    }
+
+    /**
+     * @since 3.5.2
+     */
+    public Builder entity(Class<?> entityType, List<String> entityIdProperties) {
+      mappedStatement.entityType = entityType;
+      mappedStatement.entityIdProperties = entityIdProperties == null ? null : Collections.unmodifiableList(entityIdProperties);
+      return this;
+    }
+
     /**
      * @deprecated Use {@link #resultSets}
      */
@@ -294,6 +315,43 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * @return the tables read by a select or written by other statements, as declared or found in static SQL, or
+   *         {@code null} if they are only known from the SQL of each execution
+   * @since 3.5.2
+   */
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  /**
+   * @param boundSql the SQL being executed
+   * @return the tables read by a select or written by other statements, empty if none could be found
+   * @since 3.5.2
+   */
+  public Set<String> getTables(BoundSql boundSql) {
+    return tables != null ? tables : SqlTables.parse(boundSql.getSql(), sqlCommandType);
+  }
+
+  /**
+   * @return the entity selected by id or written by this statement through the entity cache, {@code null} if the
+   *         statement does not use the entity cache or, for a write, its entity is not known
+   * @since 3.5.2
+   */
+  public Class<?> getEntityType() {
+    return entityType;
+  }
+
+  /**
+   * @return the id properties of the {@link #getEntityType() entity} for a select, {@code null} for a write, whose
+   *         entity is keyed by the id properties of the select of the same entity type in the same entity cache
+   * @see org.apache.ibatis.session.Configuration#getEntityStatement(String, Class)
+   * @since 3.5.2
+   */
+  public List<String> getEntityIdProperties() {
+    return entityIdProperties;
+  }
+
   /**
    * @deprecated Use {@link #getResultSets()}
    */
@@ -0,0 +1,154 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the tables that a SQL statement reads from (selects) or writes to (inserts, updates and deletes).
+ * <p>
+ * This is a lightweight scan, not a SQL parser: a select reads every table named after a FROM or JOIN keyword,
+ * including those of sub queries, and a write changes the table named by INSERT INTO, UPDATE, DELETE FROM or
+ * MERGE INTO. Names are upper cased and stripped of their schema and quotes. Tables hidden behind views, stored
+ * procedures or triggers cannot be found and must be declared on the statement.
+ *
+ * @since 3.5.2
+ */
+public final class SqlTables {
+
+  private static final Pattern COMMENTS_AND_LITERALS = Pattern.compile("--[^\\n]*|/\\*.*?\\*/|'(?:[^']|'')*'", Pattern.DOTALL);
+  private static final Pattern TOKEN = Pattern.compile("[\\w$#.\"`\\[\\]]+|[(),;]");
+  private static final Set<String> KEYWORDS = new TreeSet<>(Arrays.asList(
+      "WHERE", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "FETCH", "FOR", "UNION", "INTERSECT", "EXCEPT", "MINUS",
+      "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "CROSS", "OUTER", "NATURAL", "ON", "USING", "WINDOW", "SET", "VALUES",
+      "SELECT", "WITH", "START", "CONNECT", "RETURNING"));
+
+  private SqlTables() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * @param sql the SQL of the statement
+   * @param sqlCommandType the type of the statement
+   * @return the upper cased names of the tables read by a select or written by other statements, empty if none was
+   *         found
+   */
+  public static Set<String> parse(String sql, SqlCommandType sqlCommandType) {
+    if (sql == null) {
+      return Collections.emptySet();
+    }
+    String[] tokens = tokenize(sql);
+    Set<String> tables = new TreeSet<>();
+    if (sqlCommandType == SqlCommandType.SELECT) {
+      findReadTables(tokens, tables);
+    } else if (sqlCommandType == SqlCommandType.INSERT || sqlCommandType == SqlCommandType.UPDATE
+        || sqlCommandType == SqlCommandType.DELETE) {
+      findWrittenTable(tokens, tables);
+    }
+    return Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * @param tables comma separated table names, as declared on a statement
+   * @return the normalized table names
+   */
+  public static Set<String> of(String... tables) {
+    Set<String> names = new TreeSet<>();
+    for (String table : tables) {
+      for (String name : table.split(",")) {
+        if (!name.trim().isEmpty()) {
+          names.add(normalize(name.trim()));
+        }
+      }
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
+  private static void findReadTables(String[] tokens, Set<String> tables) {
+    for (int i = 0; i < tokens.length; i++) {
+      String keyword = tokens[i].toUpperCase(Locale.ENGLISH);
+      if (!"FROM".equals(keyword) && !"JOIN".equals(keyword)) {
+        continue;
+      }
+      int j = i + 1;
+      while (j < tokens.length && isName(tokens[j])) {
+        tables.add(normalize(tokens[j++]));
+        if (j < tokens.length && "AS".equalsIgnoreCase(tokens[j])) {
+          j++;
+        }
+        if (j < tokens.length && isName(tokens[j])) {
+          // alias
+          j++;
+        }
+        if (j < tokens.length && ",".equals(tokens[j]) && "FROM".equals(keyword)) {
+          j++;
+        } else {
+          break;
+        }
+      }
+    }
+  }
+
+  private static void findWrittenTable(String[] tokens, Set<String> tables) {
+    for (int i = 0; i < tokens.length - 1; i++) {
+      String keyword = tokens[i].toUpperCase(Locale.ENGLISH);
+      int target = -1;
+      if ("INTO".equals(keyword) || "UPDATE".equals(keyword)) {
+        target = i + 1;
+      } else if ("DELETE".equals(keyword)) {
+        target = "FROM".equalsIgnoreCase(tokens[i + 1]) ? i + 2 : i + 1;
+      }
+      if (target >= 0 && target < tokens.length && isName(tokens[target])) {
+        tables.add(normalize(tokens[target]));
+        return;
+      }
+    }
+  }
+
+  private static String[] tokenize(String sql) {
+    String text = COMMENTS_AND_LITERALS.matcher(sql).replaceAll(" ");
+    Matcher matcher = TOKEN.matcher(text);
+    List<String> tokens = new ArrayList<>();
+    while (matcher.find()) {
+      tokens.add(matcher.group());
+    }
+    return tokens.toArray(new String[0]);
+  }
+
+  private static boolean isName(String token) {
+    char first = token.charAt(0);
+    return first != '(' && first != ')' && first != ',' && first != ';'
+        && !KEYWORDS.contains(token.toUpperCase(Locale.ENGLISH));
+  }
+
+  private static String normalize(String name) {
+    String table = name.replaceAll("[\"`\\[\\]]", "");
+    int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    return table.toUpperCase(Locale.ENGLISH);
+  }
+
+}
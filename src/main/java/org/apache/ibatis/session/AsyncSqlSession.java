@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * A {@link SqlSession} whose operations run on a thread of the session, created by
+ * {@link Configuration#getAsyncThreadFactory()}, instead of the calling thread.
+ * <p>
+ * Operations are run one at a time, in the order they were submitted, so an update followed by a select sees the
+ * update without waiting for it. Once an operation fails, the following ones fail too, so that the rest of a
+ * transaction is not run or committed, until {@link #rollback()} or {@link #close()} is called.
+ *
+ * @since 3.5.2
+ */
+public interface AsyncSqlSession extends Closeable {
+
+  /**
+   * Retrieve a single row mapped from the statement key.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Future of the mapped object
+   */
+  <T> CompletableFuture<T> selectOne(String statement);
+
+  /**
+   * Retrieve a single row mapped from the statement key and parameter.
+   * @param <T> the returned object type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the mapped object
+   */
+  <T> CompletableFuture<T> selectOne(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter);
+
+  /**
+   * Retrieve a list of mapped objects from the statement key and parameter, within the specified row bounds.
+   * @param <E> the returned list element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Future of the list of mapped objects
+   */
+  <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * Retrieve a map of mapped objects keyed by one of their properties.
+   * @param <K> the returned Map keys type
+   * @param <V> the returned Map values type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param mapKey The property to use as key for each value in the list.
+   * @return Future of the map containing key pair data.
+   * @see SqlSession#selectMap(String, Object, String)
+   */
+  <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey);
+
+  /**
+   * Execute an insert statement.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return Future of the number of rows affected by the insert.
+   */
+  CompletableFuture<Integer> insert(String statement);
+
+  /**
+   * Execute an insert statement with the given parameter object.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the insert.
+   */
+  CompletableFuture<Integer> insert(String statement, Object parameter);
+
+  /**
+   * Execute an update statement.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return Future of the number of rows affected by the update.
+   */
+  CompletableFuture<Integer> update(String statement);
+
+  /**
+   * Execute an update statement with the given parameter object.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the update.
+   */
+  CompletableFuture<Integer> update(String statement, Object parameter);
+
+  /**
+   * Execute a delete statement.
+   * @param statement Unique identifier matching the statement to execute.
+   * @return Future of the number of rows affected by the delete.
+   */
+  CompletableFuture<Integer> delete(String statement);
+
+  /**
+   * Execute a delete statement with the given parameter object.
+   * @param statement Unique identifier matching the statement to execute.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Future of the number of rows affected by the delete.
+   */
+  CompletableFuture<Integer> delete(String statement, Object parameter);
+
+  /**
+   * Flushes batch statements and commits database connection.
+   * @return Future completed once committed
+   * @see SqlSession#commit()
+   */
+  CompletableFuture<Void> commit();
+
+  /**
+   * Flushes batch statements and commits database connection.
+   * @param force forces connection commit
+   * @return Future completed once committed
+   */
+  CompletableFuture<Void> commit(boolean force);
+
+  /**
+   * Discards pending batch statements and rolls database connection back.
+   * @return Future completed once rolled back
+   * @see SqlSession#rollback()
+   */
+  CompletableFuture<Void> rollback();
+
+  /**
+   * Discards pending batch statements and rolls database connection back.
+   * @param force forces connection rollback
+   * @return Future completed once rolled back
+   */
+  CompletableFuture<Void> rollback(boolean force);
+
+  /**
+   * Flushes batch statements.
+   * @return Future of the BatchResults of the updated records
+   */
+  CompletableFuture<List<BatchResult>> flushStatements();
+
+  /**
+   * Runs any work that needs the underlying session, in turn with the other operations of this session.
+   * The work must not wait for other operations of this session, since they only start once it returns.
+   * @param <T> the result type
+   * @param operation the work
+   * @return Future of the result of the work
+   */
+  <T> CompletableFuture<T> execute(Function<SqlSession, T> operation);
+
+  /**
+   * Retrieves a mapper whose methods run in turn with the other operations of this session. Methods returning a
+   * {@link CompletableFuture} or a {@link java.util.concurrent.CompletionStage} return immediately, the others wait
+   * for their result.
+   * @param <T> the mapper type
+   * @param type Mapper interface class
+   * @return a mapper bound to this async session
+   */
+  <T> T getMapper(Class<T> type);
+
+  /**
+   * Retrieves current configuration.
+   * @return Configuration
+   */
+  Configuration getConfiguration();
+
+  /**
+   * Closes the session once the operations submitted before have completed. Does not wait for them, so a failure to
+   * close the session is logged rather than thrown.
+   */
+  @Override
+  void close();
+
+}
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
@@ -34,15 +35,31 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheMetricsRegistry;
+import org.apache.ibatis.cache.CacheSnapshots;
+import org.apache.ibatis.cache.TableVersions;
+import org.apache.ibatis.cache.codec.BinaryCodec;
+import org.apache.ibatis.cache.codec.DeepCopyCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.invalidation.InvalidationPublisher;
+import org.apache.ibatis.cache.invalidation.InvalidationReceiver;
+import org.apache.ibatis.cache.invalidation.LoopbackInvalidationPublisher;
+import org.apache.ibatis.cache.invalidation.UdpInvalidationPublisher;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.EstimatingWeigher;
+import org.apache.ibatis.cache.weigher.SerializedSizeWeigher;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchFlushListener;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
@@ -67,6 +84,7 @@ import org.apache.ibatis.logging.nologging.NoLoggingImpl;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
 import org.apache.ibatis.logging.stdout.StdOutImpl;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.CacheBuilder;
 import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMap;
@@ -132,14 +150,21 @@ public class Configuration {
   protected boolean useGeneratedKeys;
   protected boolean useColumnLabel = true;
   protected boolean cacheEnabled = true;
+  protected boolean cacheMetricsEnabled;
+  protected boolean cachePutOnLoad;
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
 
   protected String logPrefix;
+  protected String cacheSnapshotDirectory;
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected Integer localCacheSize;
+  protected Long localCacheMaxBytes;
+  protected CacheInvalidation cacheInvalidation = CacheInvalidation.NAMESPACE;
+  protected InvalidationPublisher cacheInvalidationPublisher;
 
   /*
   当没有为参数提供特定的 JDBC 类型时，为空值指定 JDBC 类型。
@@ -165,6 +190,15 @@ public class Configuration {
   为驱动的结果集获取数量（fetchSize）设置一个提示值。此参数只可以在查询设置中被覆盖。
    */
   protected Integer defaultFetchSize;
+  protected Integer batchFlushSize;
+  protected Integer batchFlushPendingSize;
+  protected boolean batchRetainParameters = true;
+  protected boolean batchGrouping;
+  protected int batchGroupLimit = 32;
+  protected Integer batchInsertRows;
+  protected int batchInsertMaxParameters = 2000;
+  protected BatchFlushListener batchFlushListener;
+  protected ThreadFactory asyncThreadFactory;
 
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
 
@@ -210,6 +244,13 @@ public class Configuration {
       .conflictMessageProducer((savedValue, targetValue) ->
           ". please check " + savedValue.getResource() + " and " + targetValue.getResource());
   protected final Map<String, Cache> caches = new StrictMap<>("Caches collection");
+  protected final Map<String, Cache> entityCaches = new HashMap<>();
+  protected final Map<String, CacheBuilder> entityCacheBuilders = new HashMap<>();
+  protected final Map<String, Map<Class<?>, MappedStatement>> entityStatements = new HashMap<>();
+  protected final TableVersions tableVersions = new TableVersions();
+  protected final CacheSnapshots cacheSnapshots = new CacheSnapshots(this);
+  protected boolean started;
+  protected String cacheMetricsScope;
   protected final Map<String, ResultMap> resultMaps = new StrictMap<>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<>("Key Generators collection");
@@ -243,10 +284,23 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentPerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+
+    typeAliasRegistry.registerAlias("LOOPBACK", LoopbackInvalidationPublisher.class);
+    typeAliasRegistry.registerAlias("UDP", UdpInvalidationPublisher.class);
+
+    typeAliasRegistry.registerAlias("SERIALIZATION", JavaSerializationCodec.class);
+    typeAliasRegistry.registerAlias("BINARY", BinaryCodec.class);
+    typeAliasRegistry.registerAlias("DEEP_COPY", DeepCopyCodec.class);
+
+    typeAliasRegistry.registerAlias("ESTIMATING", EstimatingWeigher.class);
+    typeAliasRegistry.registerAlias("SERIALIZED_SIZE", SerializedSizeWeigher.class);
 
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
@@ -467,6 +521,55 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCacheMetricsEnabled() {
+    return cacheMetricsEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCacheMetricsEnabled(boolean cacheMetricsEnabled) {
+    this.cacheMetricsEnabled = cacheMetricsEnabled;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isCachePutOnLoad() {
+    return cachePutOnLoad;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCachePutOnLoad(boolean cachePutOnLoad) {
+    this.cachePutOnLoad = cachePutOnLoad;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public String getCacheSnapshotDirectory() {
+    return cacheSnapshotDirectory;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCacheSnapshotDirectory(String cacheSnapshotDirectory) {
+    this.cacheSnapshotDirectory = cacheSnapshotDirectory;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheSnapshots getCacheSnapshots() {
+    return cacheSnapshots;
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -489,6 +592,162 @@ public class Configuration {
     this.defaultFetchSize = defaultFetchSize;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public Integer getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets the number of parameter sets added to one batch statement after which the batch executor flushes.
+   *
+   * @param batchFlushSize the batch size, or null to flush only when asked to
+   * @since 3.5.2
+   */
+  public void setBatchFlushSize(Integer batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Integer getBatchFlushPendingSize() {
+    return batchFlushPendingSize;
+  }
+
+  /**
+   * Sets the number of parameter sets pending in all the batch statements of a session after which the batch executor
+   * flushes.
+   *
+   * @param batchFlushPendingSize the number of pending parameter sets, or null to flush only when asked to
+   * @since 3.5.2
+   */
+  public void setBatchFlushPendingSize(Integer batchFlushPendingSize) {
+    this.batchFlushPendingSize = batchFlushPendingSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isBatchRetainParameters() {
+    return batchRetainParameters;
+  }
+
+  /**
+   * Sets whether the batch results keep the parameter objects of their statements once the batch was executed.
+   *
+   * @param batchRetainParameters false to drop the parameter objects after each flush
+   * @since 3.5.2
+   */
+  public void setBatchRetainParameters(boolean batchRetainParameters) {
+    this.batchRetainParameters = batchRetainParameters;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public boolean isBatchGrouping() {
+    return batchGrouping;
+  }
+
+  /**
+   * Sets whether the batch executor keeps adding to the statement already opened for the same SQL, even when other
+   * statements were added since. Grouped statements are executed in the order their SQL was first added.
+   *
+   * @param batchGrouping true to group interleaved statements
+   * @since 3.5.2
+   */
+  public void setBatchGrouping(boolean batchGrouping) {
+    this.batchGrouping = batchGrouping;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getBatchGroupLimit() {
+    return batchGroupLimit;
+  }
+
+  /**
+   * Sets the number of distinct statements that the batch executor keeps open when grouping. Adding one more executes
+   * the pending ones first.
+   *
+   * @param batchGroupLimit the maximum number of open batch statements
+   * @since 3.5.2
+   */
+  public void setBatchGroupLimit(int batchGroupLimit) {
+    this.batchGroupLimit = batchGroupLimit;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Integer getBatchInsertRows() {
+    return batchInsertRows;
+  }
+
+  /**
+   * Sets the number of rows of the multi-row inserts that the batch executor writes for the single row
+   * {@code INSERT ... VALUES (...)} statements added to a batch.
+   *
+   * @param batchInsertRows the number of rows per insert, or null to add every row to the batch as it is
+   * @since 3.5.2
+   */
+  public void setBatchInsertRows(Integer batchInsertRows) {
+    this.batchInsertRows = batchInsertRows;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public int getBatchInsertMaxParameters() {
+    return batchInsertMaxParameters;
+  }
+
+  /**
+   * Sets the maximum number of parameters of a multi-row insert, which lowers the number of rows per insert of wide
+   * rows to stay within the limits of the driver.
+   *
+   * @param batchInsertMaxParameters the maximum number of parameters per statement
+   * @since 3.5.2
+   */
+  public void setBatchInsertMaxParameters(int batchInsertMaxParameters) {
+    this.batchInsertMaxParameters = batchInsertMaxParameters;
+  }
+
+  /**
+   * Gets the factory of the threads that run the operations of the {@link AsyncSqlSession}s, one per session.
+   *
+   * @return the configured factory, or {@code null} to create virtual threads when the JVM supports them and daemon
+   *         threads otherwise
+   * @since 3.5.2
+   */
+  public ThreadFactory getAsyncThreadFactory() {
+    return asyncThreadFactory;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setAsyncThreadFactory(ThreadFactory asyncThreadFactory) {
+    this.asyncThreadFactory = asyncThreadFactory;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public BatchFlushListener getBatchFlushListener() {
+    return batchFlushListener;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setBatchFlushListener(BatchFlushListener batchFlushListener) {
+    this.batchFlushListener = batchFlushListener;
+  }
+
   public boolean isUseColumnLabel() {
     return useColumnLabel;
   }
@@ -505,6 +764,69 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.2
+   */
+  public Integer getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setLocalCacheSize(Integer localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setLocalCacheMaxBytes(Long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheInvalidation getCacheInvalidation() {
+    return cacheInvalidation;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCacheInvalidation(CacheInvalidation cacheInvalidation) {
+    this.cacheInvalidation = cacheInvalidation;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public InvalidationPublisher getCacheInvalidationPublisher() {
+    return cacheInvalidationPublisher;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public void setCacheInvalidationPublisher(InvalidationPublisher cacheInvalidationPublisher) {
+    this.cacheInvalidationPublisher = cacheInvalidationPublisher;
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public TableVersions getTableVersions() {
+    return tableVersions;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -670,7 +992,7 @@ public class Configuration {
     3.判断是否是二级缓存  配置文件中的cacheEnabled属性
      */
     if (cacheEnabled) {
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, cacheInvalidationPublisher);
     }
 
     /*
@@ -720,6 +1042,112 @@ public class Configuration {
     return caches.containsKey(id);
   }
 
+  /**
+   * Starts the services of the caches of this configuration: their snapshots are restored and the cache invalidation
+   * publisher is started. {@link org.apache.ibatis.session.defaults.DefaultSqlSessionFactory} calls it when it opens
+   * its first session, and only the first call after a {@link #close()} does anything.
+   *
+   * @since 3.5.2
+   */
+  public synchronized void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    cacheSnapshots.restore();
+    if (cacheInvalidationPublisher != null) {
+      cacheInvalidationPublisher.start(new InvalidationReceiver(this));
+    }
+  }
+
+  /**
+   * Releases what the caches of this configuration hold outside of it. The cache invalidation publisher is closed,
+   * their snapshots are saved and the scope of their metrics is unregistered from the {@link CacheMetricsRegistry} and
+   * from JMX.
+   * It is called by {@link org.apache.ibatis.session.defaults.DefaultSqlSessionFactory#close()}, once the factory built
+   * from this configuration is no longer used.
+   *
+   * @since 3.5.2
+   */
+  public synchronized void close() {
+    if (started) {
+      started = false;
+      if (cacheInvalidationPublisher != null) {
+        cacheInvalidationPublisher.close();
+      }
+      cacheSnapshots.save();
+    }
+    if (cacheMetricsScope != null) {
+      CacheMetricsRegistry.unregisterScope(cacheMetricsScope);
+      cacheMetricsScope = null;
+    }
+  }
+
+  /**
+   * Returns the scope the metrics of the caches of this configuration are registered in. It is reserved in the
+   * {@link CacheMetricsRegistry} on the first call, named after the environment, and released by {@link #close()}.
+   *
+   * @since 3.5.2
+   */
+  public synchronized String getCacheMetricsScope() {
+    if (cacheMetricsScope == null) {
+      cacheMetricsScope = CacheMetricsRegistry.reserveScope(environment == null ? "default" : environment.getId());
+    }
+    return cacheMetricsScope;
+  }
+
+  /**
+   * @param cacheId the id of a second level cache
+   * @param entityCache the cache of the entities selected by id through the statements using that cache
+   * @since 3.5.2
+   */
+  public void addEntityCache(String cacheId, Cache entityCache) {
+    entityCaches.put(cacheId, entityCache);
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public Cache getEntityCache(String cacheId) {
+    return entityCaches.get(cacheId);
+  }
+
+  /**
+   * @param cacheId the id of a second level cache
+   * @param entityCacheBuilder builds the entity cache of that cache, once a statement uses it
+   * @since 3.5.2
+   */
+  public void addEntityCacheBuilder(String cacheId, CacheBuilder entityCacheBuilder) {
+    entityCacheBuilders.put(cacheId, entityCacheBuilder);
+  }
+
+  /**
+   * @since 3.5.2
+   */
+  public CacheBuilder getEntityCacheBuilder(String cacheId) {
+    return entityCacheBuilders.get(cacheId);
+  }
+
+  /**
+   * @param cacheId the id of a second level cache
+   * @param statement a select of an entity by id through the entity cache of that cache. Only the first select of each
+   *          entity type is kept.
+   * @since 3.5.2
+   */
+  public void addEntityStatement(String cacheId, MappedStatement statement) {
+    entityStatements.computeIfAbsent(cacheId, k -> new HashMap<>()).putIfAbsent(statement.getEntityType(), statement);
+  }
+
+  /**
+   * @return the select whose result map the entity type is cached with in the entity cache of the cache, which also
+   *         gives the id properties of the entities written through that cache, or {@code null}
+   * @since 3.5.2
+   */
+  public MappedStatement getEntityStatement(String cacheId, Class<?> entityType) {
+    Map<Class<?>, MappedStatement> statements = entityStatements.get(cacheId);
+    return statements == null ? null : statements.get(entityType);
+  }
+
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
     checkLocallyForDiscriminatedNestedResultMaps(rm);
@@ -17,6 +17,8 @@ package org.apache.ibatis.session;
 
 import java.sql.Connection;
 
+import org.apache.ibatis.session.defaults.DefaultAsyncSqlSession;
+
 /**
  * Creates an {@link SqlSession} out of a connection or a DataSource
  *
@@ -55,4 +57,31 @@ public interface SqlSessionFactory {
 
   Configuration getConfiguration();
 
+  /**
+   * Opens a session whose operations run on a thread of its own, created by
+   * {@link Configuration#getAsyncThreadFactory()}. Each session holds that thread until it is closed, which is cheap
+   * with virtual threads but costs a platform thread per open session on JVMs without them.
+   *
+   * @since 3.5.2
+   */
+  default AsyncSqlSession openAsyncSession() {
+    return new DefaultAsyncSqlSession(openSession(), getConfiguration().getAsyncThreadFactory());
+  }
+
+  /**
+   * @see #openAsyncSession()
+   * @since 3.5.2
+   */
+  default AsyncSqlSession openAsyncSession(boolean autoCommit) {
+    return new DefaultAsyncSqlSession(openSession(autoCommit), getConfiguration().getAsyncThreadFactory());
+  }
+
+  /**
+   * @see #openAsyncSession()
+   * @since 3.5.2
+   */
+  default AsyncSqlSession openAsyncSession(ExecutorType execType) {
+    return new DefaultAsyncSqlSession(openSession(execType), getConfiguration().getAsyncThreadFactory());
+  }
+
 }
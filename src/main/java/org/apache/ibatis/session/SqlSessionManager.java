@@ -151,6 +151,21 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionFactory.openSession(execType, connection);
   }
 
+  @Override
+  public AsyncSqlSession openAsyncSession() {
+    return sqlSessionFactory.openAsyncSession();
+  }
+
+  @Override
+  public AsyncSqlSession openAsyncSession(boolean autoCommit) {
+    return sqlSessionFactory.openAsyncSession(autoCommit);
+  }
+
+  @Override
+  public AsyncSqlSession openAsyncSession(ExecutorType execType) {
+    return sqlSessionFactory.openAsyncSession(execType);
+  }
+
   @Override
   public Configuration getConfiguration() {
     return sqlSessionFactory.getConfiguration();
@@ -0,0 +1,295 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session.defaults;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionException;
+
+/**
+ * The default implementation for {@link AsyncSqlSession}.
+ * Runs the operations on a thread of its own, so that the wrapped session, and the thread bound state of its caches
+ * such as the keys held by a blocking cache, are only used by one thread.
+ *
+ * @since 3.5.2
+ */
+public class DefaultAsyncSqlSession implements AsyncSqlSession {
+
+  private static final Log log = LogFactory.getLog(DefaultAsyncSqlSession.class);
+
+  private final SqlSession sqlSession;
+  private final ExecutorService executor;
+  private volatile Thread worker;
+  // only used by the worker thread
+  private RuntimeException failure;
+
+  /**
+   * @param sqlSession the session to run the operations on
+   * @param threadFactory creates the thread of the session, or {@code null} for {@link #defaultThreadFactory()}
+   */
+  public DefaultAsyncSqlSession(SqlSession sqlSession, ThreadFactory threadFactory) {
+    this.sqlSession = sqlSession;
+    ThreadFactory factory = threadFactory == null ? defaultThreadFactory() : threadFactory;
+    this.executor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = factory.newThread(runnable);
+      worker = thread;
+      return thread;
+    });
+  }
+
+  /**
+   * Returns the thread factory used when none is configured: it creates virtual threads when the JVM supports them,
+   * daemon threads otherwise.
+   *
+   * @return the default thread factory
+   */
+  public static ThreadFactory defaultThreadFactory() {
+    return DefaultThreadFactoryHolder.THREAD_FACTORY;
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement) {
+    return execute(session -> session.selectOne(statement));
+  }
+
+  @Override
+  public <T> CompletableFuture<T> selectOne(String statement, Object parameter) {
+    return execute(session -> session.selectOne(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement) {
+    return execute(session -> session.selectList(statement));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter) {
+    return execute(session -> session.selectList(statement, parameter));
+  }
+
+  @Override
+  public <E> CompletableFuture<List<E>> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    return execute(session -> session.selectList(statement, parameter, rowBounds));
+  }
+
+  @Override
+  public <K, V> CompletableFuture<Map<K, V>> selectMap(String statement, Object parameter, String mapKey) {
+    return execute(session -> session.selectMap(statement, parameter, mapKey));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement) {
+    return execute(session -> session.insert(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> insert(String statement, Object parameter) {
+    return execute(session -> session.insert(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement) {
+    return execute(session -> session.update(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> update(String statement, Object parameter) {
+    return execute(session -> session.update(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement) {
+    return execute(session -> session.delete(statement));
+  }
+
+  @Override
+  public CompletableFuture<Integer> delete(String statement, Object parameter) {
+    return execute(session -> session.delete(statement, parameter));
+  }
+
+  @Override
+  public CompletableFuture<Void> commit() {
+    return execute(session -> {
+      session.commit();
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> commit(boolean force) {
+    return execute(session -> {
+      session.commit(force);
+      return null;
+    });
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback() {
+    return recover(SqlSession::rollback);
+  }
+
+  @Override
+  public CompletableFuture<Void> rollback(boolean force) {
+    return recover(session -> session.rollback(force));
+  }
+
+  @Override
+  public CompletableFuture<List<BatchResult>> flushStatements() {
+    return execute(SqlSession::flushStatements);
+  }
+
+  @Override
+  public <T> CompletableFuture<T> execute(Function<SqlSession, T> operation) {
+    return submit(session -> {
+      if (failure != null) {
+        throw new SqlSessionException("A previous operation of this session failed. Roll it back or close it.  Cause: "
+            + failure, failure);
+      }
+      try {
+        return operation.apply(session);
+      } catch (RuntimeException e) {
+        failure = e;
+        throw e;
+      }
+    });
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T getMapper(Class<T> type) {
+    T mapper = sqlSession.getMapper(type);
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+      if (Object.class.equals(method.getDeclaringClass()) || Thread.currentThread() == worker) {
+        return invoke(mapper, method, args);
+      }
+      if (CompletableFuture.class.equals(method.getReturnType())
+          || CompletionStage.class.equals(method.getReturnType())) {
+        // the future of the wrapped mapper is already complete, joining it lets its failure fail the session
+        return execute(session -> join((CompletionStage<?>) invoke(mapper, method, args)));
+      }
+      CompletableFuture<Object> result = execute(session -> invoke(mapper, method, args));
+      try {
+        return result.join();
+      } catch (CompletionException e) {
+        throw e.getCause();
+      }
+    });
+  }
+
+  @Override
+  public Configuration getConfiguration() {
+    return sqlSession.getConfiguration();
+  }
+
+  @Override
+  public void close() {
+    recover(SqlSession::close).whenComplete((result, e) -> {
+      if (e != null) {
+        log.error("Error closing the session.  Cause: " + e, e);
+      }
+    });
+    executor.shutdown();
+  }
+
+  /**
+   * Runs an operation that ends the transaction even after a failed operation, and clears the failure if it succeeds.
+   */
+  private CompletableFuture<Void> recover(Consumer<SqlSession> operation) {
+    return submit(session -> {
+      operation.accept(session);
+      failure = null;
+      return null;
+    });
+  }
+
+  private <T> CompletableFuture<T> submit(Function<SqlSession, T> operation) {
+    try {
+      return CompletableFuture.supplyAsync(() -> operation.apply(sqlSession), executor);
+    } catch (RejectedExecutionException e) {
+      CompletableFuture<T> closed = new CompletableFuture<>();
+      closed.completeExceptionally(new SqlSessionException("The session is closed.", e));
+      return closed;
+    }
+  }
+
+  private static Object join(CompletionStage<?> future) {
+    try {
+      return future.toCompletableFuture().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static Object invoke(Object mapper, Method method, Object[] args) {
+    try {
+      return method.invoke(mapper, args);
+    } catch (InvocationTargetException | IllegalAccessException e) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(e);
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CompletionException(cause);
+    }
+  }
+
+  private static class DefaultThreadFactoryHolder {
+
+    private static final ThreadFactory THREAD_FACTORY = createThreadFactory();
+
+    private static ThreadFactory createThreadFactory() {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+        return (ThreadFactory) factory.invoke(builder);
+      } catch (ReflectiveOperationException e) {
+        // virtual threads are not supported by this JVM
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-async-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        };
+      }
+    }
+
+  }
+
+}
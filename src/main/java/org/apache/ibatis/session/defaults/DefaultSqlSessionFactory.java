@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.session.defaults;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -32,11 +33,15 @@ import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
 
 /**
+ * The services of the caches of the configuration, i.e. snapshots and the cache invalidation publisher, are started
+ * when the first session is opened, and stopped by {@link #close()}.
+ *
  * @author Clinton Begin
  */
-public class DefaultSqlSessionFactory implements SqlSessionFactory {
+public class DefaultSqlSessionFactory implements SqlSessionFactory, Closeable {
 
   private final Configuration configuration;
+  private volatile boolean started;
 
   public DefaultSqlSessionFactory(Configuration configuration) {
     this.configuration = configuration;
@@ -87,9 +92,23 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     return configuration;
   }
 
+  /**
+   * Saves the snapshots of the caches, closes the cache invalidation publisher and unregisters the cache metrics of
+   * the configuration. Sessions opened afterwards start the snapshots and the publisher again.
+   *
+   * @see Configuration#close()
+   * @since 3.5.2
+   */
+  @Override
+  public void close() {
+    started = false;
+    configuration.close();
+  }
+
   private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
     Transaction tx = null;
     try {
+      startIfNeeded();
       //获取环境配置--->事务工厂 数据源
       final Environment environment = configuration.getEnvironment();
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
@@ -108,6 +127,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
 
   private SqlSession openSessionFromConnection(ExecutorType execType, Connection connection) {
     try {
+      startIfNeeded();
       boolean autoCommit;
       try {
         autoCommit = connection.getAutoCommit();
@@ -128,6 +148,14 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     }
   }
 
+  private void startIfNeeded() {
+    if (!started) {
+      // restores snapshots and binds the publisher, which is kept out of the constructor
+      configuration.start();
+      started = true;
+    }
+  }
+
   private TransactionFactory getTransactionFactoryFromEnvironment(Environment environment) {
     if (environment == null || environment.getTransactionFactory() == null) {
       return new ManagedTransactionFactory();
@@ -0,0 +1,176 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  @Test
+  void shouldShareLoadedValueWithWaitingThreads() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> waiters = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        waiters.add(executor.submit(() -> cache.getObject("key")));
+      }
+      Thread.sleep(100);
+      for (Future<Object> waiter : waiters) {
+        assertFalse(waiter.isDone());
+      }
+      cache.putObject("key", "value");
+      for (Future<Object> waiter : waiters) {
+        assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldHandOverLoadingWhenReleasedWithoutValue() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> {
+        Object value = cache.getObject("key");
+        cache.putObject("key", "loaded by waiter");
+        return value;
+      });
+      Thread.sleep(100);
+      cache.removeObject("key");
+      assertNull(waiter.get(5, TimeUnit.SECONDS));
+      assertEquals("loaded by waiter", cache.getObject("key"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldLoadOnceForConcurrentGetOrLoad() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    AtomicInteger loads = new AtomicInteger();
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Object>> loaders = new ArrayList<>();
+      for (int i = 0; i < 4; i++) {
+        loaders.add(executor.submit(() -> cache.getOrLoad("key", k -> {
+          loads.incrementAndGet();
+          try {
+            Thread.sleep(100);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "value";
+        })));
+      }
+      for (Future<Object> loader : loaders) {
+        assertEquals("value", loader.get(5, TimeUnit.SECONDS));
+      }
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldReleaseKeyWhenLoaderFails() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(100);
+    assertThrows(IllegalStateException.class, () -> cache.getOrLoad("key", k -> {
+      throw new IllegalStateException("load failed");
+    }));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> loader = executor.submit(() -> cache.getOrLoad("key", k -> "value"));
+      assertEquals("value", loader.get(5, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldNotBlockTheLoadingThread() {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(100);
+    assertNull(cache.getObject("key"));
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldTimeoutWaitingForAnotherThread() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(100);
+    assertNull(cache.getObject("key"));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+      Exception e = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof CacheException);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void shouldPropagateLoadFailureToWaitingThreads() throws Exception {
+    AtomicInteger puts = new AtomicInteger();
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default") {
+      @Override
+      public void putObject(Object key, Object value) {
+        puts.incrementAndGet();
+        throw new IllegalStateException("put failed");
+      }
+    });
+    assertNull(cache.getObject("key"));
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+      Thread.sleep(100);
+      assertThrows(IllegalStateException.class, () -> cache.putObject("key", "value"));
+      Exception e = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+      assertTrue(e.getCause() instanceof CacheException);
+      assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+      assertEquals(1, puts.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -87,6 +87,29 @@ class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  void shouldGrowBeyondExpectedUpdates() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 20; i++) {
+      key1.update(i);
+      key2.update(i);
+    }
+    assertEquals(20, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  void shouldNotShareValuesWithClone() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" });
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    clone.update("world");
+    assertNotEquals(key, clone);
+    assertEquals(2, key.getUpdateCount());
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -0,0 +1,113 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.decorators.CompressedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class CompressedCacheTest {
+
+  @Test
+  void shouldCompressLargeValues() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    CompressedCache cache = new CompressedCache(delegate);
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add("row " + i + " with a column value that repeats in every row");
+    }
+    byte[] serialized = new JavaSerializationCodec().encode(rows);
+    cache.putObject("rows", serialized);
+    assertArrayEquals(serialized, (byte[]) cache.getObject("rows"));
+    assertEquals(1, cache.getCompressedCount());
+    assertTrue(cache.getCompressionRatio() > 3);
+    assertTrue(((byte[]) delegate.getObject("rows")).length < 20000);
+  }
+
+  @Test
+  void shouldRoundTripByteArrays() {
+    CompressedCache cache = new CompressedCache(new PerpetualCache("default"));
+    cache.setThreshold(16);
+    Random random = new Random(42);
+    List<byte[]> values = new ArrayList<>();
+    values.add(new byte[0]);
+    values.add(new byte[] { 1, 2, 3 });
+    values.add(new byte[100000]);
+    byte[] noise = new byte[70000];
+    random.nextBytes(noise);
+    values.add(noise);
+    byte[] mixed = new byte[100000];
+    for (int i = 0; i < mixed.length; i++) {
+      // long literal runs, short overlapping matches and matches further than the 64k window
+      mixed[i] = i % 3000 < 1000 ? (byte) random.nextInt() : i % 7 == 0 ? 1 : (byte) (i % 3);
+    }
+    values.add(mixed);
+    for (int i = 0; i < values.size(); i++) {
+      cache.putObject(i, values.get(i));
+    }
+    for (int i = 0; i < values.size(); i++) {
+      assertArrayEquals(values.get(i), (byte[]) cache.getObject(i));
+    }
+    assertEquals(2, cache.getCompressedCount());
+  }
+
+  @Test
+  void shouldStoreSmallAndIncompressibleValuesAsTheyAre() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    CompressedCache cache = new CompressedCache(delegate);
+    byte[] small = new byte[100];
+    byte[] noise = new byte[10000];
+    new Random(42).nextBytes(noise);
+    cache.putObject("small", small);
+    cache.putObject("noise", noise);
+    assertEquals(small.length + 1, ((byte[]) delegate.getObject("small")).length);
+    assertEquals(noise.length + 1, ((byte[]) delegate.getObject("noise")).length);
+    assertArrayEquals(noise, (byte[]) cache.getObject("noise"));
+    assertEquals(0, cache.getCompressedCount());
+    assertEquals(1, cache.getCompressionRatio());
+  }
+
+  @Test
+  void shouldPassThroughValuesThatAreNotBytes() {
+    PerpetualCache delegate = new PerpetualCache("default");
+    CompressedCache cache = new CompressedCache(delegate);
+    cache.setThreshold(16);
+    List<String> rows = new ArrayList<>(Collections.nCopies(500, "value"));
+    cache.putObject("rows", rows);
+    assertSame(rows, delegate.getObject("rows"));
+    assertSame(rows, cache.getObject("rows"));
+    assertEquals(0, cache.getCompressedCount());
+  }
+
+  @Test
+  void shouldReturnLoadedValueWithoutCopy() {
+    CompressedCache cache = new CompressedCache(new PerpetualCache("default"));
+    byte[] loaded = new byte[5000];
+    assertSame(loaded, cache.getOrLoad("key", k -> loaded));
+    assertArrayEquals(loaded, (byte[]) cache.getOrLoad("key", k -> fail("should not load twice")));
+    assertEquals(Arrays.asList("a", "b"), cache.getOrLoad("other", k -> Arrays.asList("a", "b")));
+  }
+
+}
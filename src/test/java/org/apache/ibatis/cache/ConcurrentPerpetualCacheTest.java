@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentPerpetualCacheTest {
+
+  @Test
+  void shouldDemonstrateHowAllObjectsAreKept() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    for (int i = 0; i < 100000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+    assertEquals(100000, cache.getSize());
+  }
+
+  @Test
+  void shouldDemonstrateCopiesAreEqual() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache = new SerializedCache(cache);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldTreatNullValueAsMissingEntry() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(0, null);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldRemoveOnlyTheExpectedValue() {
+    Cache cache = new ExpiringCache(new ConcurrentPerpetualCache("default"));
+    cache.putObject(0, "old");
+    cache.putObject(0, "new");
+    assertFalse(cache.removeObject(0, "old"));
+    assertEquals("new", cache.getObject(0));
+    assertTrue(cache.removeObject(0, "new"));
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  void shouldBeUsableFromSeveralThreadsWithoutSynchronization() throws Exception {
+    Cache cache = new ConcurrentPerpetualCache("default");
+    assertTrue(cache.isThreadSafe());
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int t = 0; t < 8; t++) {
+      final int offset = t * 10000;
+      executor.execute(() -> {
+        for (int i = offset; i < offset + 10000; i++) {
+          cache.putObject(i, i);
+          cache.getObject(i);
+        }
+      });
+    }
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+    assertEquals(80000, cache.getSize());
+  }
+
+}
@@ -0,0 +1,116 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class ExpiringCacheTest {
+
+  @Test
+  void shouldExpireEachEntryAfterItsTimeToLive() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(500);
+    cache.putObject(0, 0);
+    Thread.sleep(300);
+    cache.putObject(1, 1);
+    Thread.sleep(300);
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+    Thread.sleep(300);
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldRestartTimeToLiveWhenEntryIsPutAgain() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(500);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    Thread.sleep(300);
+    cache.putObject(0, 0);
+    Thread.sleep(300);
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldKeepEntriesThatAreReadWithinTimeToIdle() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToIdle(500);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    for (int i = 0; i < 4; i++) {
+      Thread.sleep(200);
+      assertEquals(0, cache.getObject(0));
+    }
+    assertEquals(1, cache.getSize());
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldExpireReadEntriesAfterTimeToLive() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setTimeToLive(500);
+    cache.setTimeToIdle(400);
+    cache.putObject(0, 0);
+    for (int i = 0; i < 2; i++) {
+      Thread.sleep(200);
+      assertEquals(0, cache.getObject(0));
+    }
+    Thread.sleep(200);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldForgetEntriesEvictedAbove() {
+    LruCache cache = new LruCache(new ExpiringCache(new PerpetualCache("default")));
+    cache.setSize(5);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertNull(cache.getObject(0));
+    assertEquals(9, cache.getObject(9));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ExpiringCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+}
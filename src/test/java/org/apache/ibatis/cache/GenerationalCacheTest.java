@@ -0,0 +1,87 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.GenerationalCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class GenerationalCacheTest {
+
+  @Test
+  void shouldHideAllEntriesOnClearWithoutRemovingThem() {
+    Cache cache = new GenerationalCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    assertEquals(1, ((GenerationalCache) cache).getGeneration());
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(5, cache.getSize());
+    cache.putObject(0, "new");
+    assertEquals("new", cache.getObject(0));
+  }
+
+  @Test
+  void shouldLetEvictionDropStaleEntries() {
+    LruCache lruCache = new LruCache(new PerpetualCache("default"));
+    lruCache.setSize(5);
+    Cache cache = new GenerationalCache(lruCache);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.clear();
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i * 10);
+    }
+    assertEquals(5, cache.getSize());
+    for (int i = 0; i < 5; i++) {
+      assertEquals(i * 10, cache.getObject(i));
+    }
+  }
+
+  @Test
+  void shouldRemoveEntryOfCurrentGeneration() {
+    Cache cache = new GenerationalCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldApplyGenerationToBulkOperations() {
+    Cache cache = new GenerationalCache(new PerpetualCache("default"));
+    Map<Object, Object> entries = new HashMap<>();
+    entries.put("a", 1);
+    entries.put("b", 2);
+    cache.putAll(entries);
+    assertEquals(entries, cache.getAll(Arrays.asList("a", "b", "c")));
+    cache.removeAll(Arrays.asList("a"));
+    assertNull(cache.getObject("a"));
+    cache.clear();
+    assertTrue(cache.getAll(Arrays.asList("a", "b")).isEmpty());
+  }
+
+}
@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.jupiter.api.Assertions.*;
@@ -35,6 +39,22 @@ class LruCacheTest {
     assertEquals(5, cache.getSize());
   }
 
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemsWhenPuttingAll() {
+    LruCache cache = new LruCache(new PerpetualCache("default"));
+    cache.setSize(5);
+    Map<Object, Object> entries = new LinkedHashMap<>();
+    for (int i = 0; i < 8; i++) {
+      entries.put(i, i);
+    }
+    cache.putAll(entries);
+    assertEquals(5, cache.getSize());
+    Map<Object, Object> values = cache.getAll(Arrays.asList(0, 1, 2, 3, 7));
+    assertEquals(2, values.size());
+    assertEquals(3, values.get(3));
+    assertEquals(7, values.get(7));
+  }
+
   @Test
   void shouldRemoveItemOnDemand() {
     Cache cache = new LruCache(new PerpetualCache("default"));
@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.MetricsCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class MetricsCacheTest {
+
+  @Test
+  void shouldCountHitsMissesAndPuts() {
+    MetricsCache cache = new MetricsCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(0));
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getObject(0));
+    assertEquals(0, cache.getObject(0));
+    assertEquals(3, cache.getRequestCount());
+    assertEquals(2, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getPutCount());
+    assertEquals(2.0 / 3.0, cache.getHitRatio(), 0.0001);
+    assertEquals(-1, cache.getEvictionCount());
+    assertEquals(-1, cache.getApproximateBytes());
+  }
+
+  @Test
+  void shouldCountGetOrLoadOnce() throws Exception {
+    MetricsCache cache = new MetricsCache(new PerpetualCache("default"));
+    assertEquals(0, cache.getOrLoad(0, k -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return 0;
+    }));
+    assertEquals(0, cache.getOrLoad(0, k -> 1));
+    assertEquals(2, cache.getRequestCount());
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getPutCount());
+    assertTrue(cache.getAverageLoadTime() >= 50);
+  }
+
+  @Test
+  void shouldNotMeasureTimeBetweenMissAndPut() throws Exception {
+    MetricsCache cache = new MetricsCache(new PerpetualCache("default"));
+    assertNull(cache.getObject(0));
+    Thread.sleep(50);
+    cache.putObject(0, 0);
+    assertEquals(0, cache.getAverageLoadTime());
+    cache.recordLoad(TimeUnit.MILLISECONDS.toNanos(20));
+    assertEquals(20, cache.getAverageLoadTime(), 0.0001);
+  }
+
+  @Test
+  void shouldTrackEvictionsAndBytesBelowEvictionDecorator() {
+    MetricsCache.Tracker tracker = new MetricsCache.Tracker(new PerpetualCache("default"));
+    LruCache lruCache = new LruCache(tracker);
+    lruCache.setSize(5);
+    lruCache.setEvictionListener(tracker);
+    MetricsCache cache = new MetricsCache(new SerializedCache(lruCache), tracker);
+    for (int i = 0; i < 8; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    cache.removeObject("missing");
+    cache.removeObject(7);
+    assertEquals(3, cache.getEvictionCount());
+    assertTrue(cache.getApproximateBytes() > 5 * "value0".length());
+    cache.resetStatistics();
+    assertEquals(0, cache.getEvictionCount());
+    assertEquals(0, cache.getPutCount());
+  }
+
+  @Test
+  void shouldCountEvictionsReportedByTheBaseCache() {
+    CacheBuilder builder = new CacheBuilder("org.apache.ibatis.cache.MetricsCacheTest.offHeap")
+        .implementation(OffHeapCache.class).metrics(true).metricsScope("offHeap");
+    Properties properties = new Properties();
+    properties.setProperty("maxBytes", "4096");
+    properties.setProperty("blockSize", "512");
+    Cache cache = builder.properties(properties).build();
+    try {
+      for (int i = 0; i < 8; i++) {
+        cache.putObject(i, new byte[1000]);
+      }
+      cache.removeObject(7);
+      MetricsCache metrics = CacheMetricsRegistry.getMetrics("offHeap", cache.getId());
+      assertEquals(8 - 4, metrics.getEvictionCount());
+    } finally {
+      CacheMetricsRegistry.unregisterScope("offHeap");
+    }
+  }
+
+  @Test
+  void shouldRegisterInJmxWhenBuilt() throws Exception {
+    Cache cache = new CacheBuilder("org.apache.ibatis.cache.MetricsCacheTest").metrics(true).metricsScope("test").build();
+    cache.getObject("key");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis:type=Cache,scope=" + ObjectName.quote("test") + ",id="
+        + ObjectName.quote("org.apache.ibatis.cache.MetricsCacheTest"));
+    try {
+      assertEquals(1L, server.getAttribute(name, "MissCount"));
+      assertSame(cache, CacheMetricsRegistry.getMetrics("test", "org.apache.ibatis.cache.MetricsCacheTest"));
+    } finally {
+      CacheMetricsRegistry.unregister("test", "org.apache.ibatis.cache.MetricsCacheTest");
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void shouldKeepTheCachesOfEachConfigurationApart() {
+    Configuration first = newConfigurationWithCache("org.apache.ibatis.cache.MetricsCacheTest.shared");
+    Configuration second = newConfigurationWithCache("org.apache.ibatis.cache.MetricsCacheTest.shared");
+    String firstScope = first.getCacheMetricsScope();
+    String secondScope = second.getCacheMetricsScope();
+    assertNotEquals(firstScope, secondScope);
+    MetricsCache firstMetrics = CacheMetricsRegistry.getMetrics(firstScope, "org.apache.ibatis.cache.MetricsCacheTest.shared");
+    MetricsCache secondMetrics = CacheMetricsRegistry.getMetrics(secondScope, "org.apache.ibatis.cache.MetricsCacheTest.shared");
+    assertNotNull(firstMetrics);
+    assertNotNull(secondMetrics);
+    assertNotSame(firstMetrics, secondMetrics);
+    first.close();
+    assertNull(CacheMetricsRegistry.getMetrics(firstScope, "org.apache.ibatis.cache.MetricsCacheTest.shared"));
+    assertSame(secondMetrics, CacheMetricsRegistry.getMetrics(secondScope, "org.apache.ibatis.cache.MetricsCacheTest.shared"));
+    second.close();
+  }
+
+  @Test
+  void shouldUnregisterWhenConfigurationIsClosed() {
+    Configuration configuration = newConfigurationWithCache("org.apache.ibatis.cache.MetricsCacheTest.closed");
+    String scope = configuration.getCacheMetricsScope();
+    assertNotNull(CacheMetricsRegistry.getMetrics(scope, "org.apache.ibatis.cache.MetricsCacheTest.closed"));
+    configuration.close();
+    assertNull(CacheMetricsRegistry.getMetrics(scope, "org.apache.ibatis.cache.MetricsCacheTest.closed"));
+  }
+
+  private static Configuration newConfigurationWithCache(String namespace) {
+    Configuration configuration = new Configuration();
+    configuration.setCacheMetricsEnabled(true);
+    MapperBuilderAssistant assistant = new MapperBuilderAssistant(configuration, "resource");
+    assistant.setCurrentNamespace(namespace);
+    assistant.useNewCache(new CacheBuilder(assistant.getCurrentNamespace()));
+    return configuration;
+  }
+
+}
@@ -0,0 +1,159 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SnapshotCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfStoredObjects() {
+    Cache cache = new OffHeapCache("default");
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      rows.add("row " + i);
+    }
+    cache.putObject(0, rows);
+    Object cached = cache.getObject(0);
+    assertEquals(rows, cached);
+    assertNotSame(rows, cached);
+  }
+
+  @Test
+  void shouldStoreSerializedValuesAsTheyAre() {
+    Cache cache = new SerializedCache(new OffHeapCache("default"));
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+      assertEquals(i, cache.getObject(i));
+    }
+    assertEquals(1000, cache.getSize());
+  }
+
+  @Test
+  void shouldSpanSeveralBlocksAndSlabs() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(16);
+    cache.setSlabSize(64);
+    cache.setMaxBytes(1024);
+    byte[] value = new byte[200];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = (byte) i;
+    }
+    cache.putObject(0, value);
+    assertArrayEquals(value, (byte[]) cache.getObject(0));
+    assertEquals(208, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedWhenBytesRunOut() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(64);
+    cache.setSlabSize(256);
+    cache.setMaxBytes(256);
+    cache.putObject(0, new byte[100]);
+    cache.putObject(1, new byte[100]);
+    cache.getObject(0);
+    cache.putObject(2, new byte[100]);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertNotNull(cache.getObject(2));
+    assertEquals(256, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanCapacity() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(64);
+    cache.setSlabSize(256);
+    cache.setMaxBytes(256);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(1, new byte[1000]);
+    assertNotNull(cache.getObject(0));
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new OffHeapCache("default");
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertNull(cache.removeObject(0));
+  }
+
+  @Test
+  void shouldRemoveItemsWithoutReadingThem() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeAll(Arrays.asList(0, 1, 2));
+    cache.putObject(3, null);
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(3));
+    assertEquals(4, cache.getObject(4));
+    assertEquals(1, cache.getSize());
+    assertEquals(cache.getBlockSize(), cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldReportEvictionsToSnapshotKeys() {
+    OffHeapCache offHeapCache = new OffHeapCache("default");
+    offHeapCache.setBlockSize(512);
+    offHeapCache.setMaxBytes(4096);
+    SnapshotCache cache = new SnapshotCache(offHeapCache);
+    offHeapCache.setEvictionListener(cache);
+    for (int i = 0; i < 8; i++) {
+      cache.putObject(i, new byte[1000]);
+    }
+    assertEquals(4, offHeapCache.getSize());
+    assertEquals(new HashSet<>(Arrays.asList(4, 5, 6, 7)), cache.getKeys());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldRejectInvalidLayout() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(1024);
+    cache.setSlabSize(512);
+    assertThrows(CacheException.class, () -> cache.putObject(0, 0));
+  }
+
+}
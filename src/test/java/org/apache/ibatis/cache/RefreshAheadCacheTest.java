@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.RefreshAheadCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class RefreshAheadCacheTest {
+
+  @Test
+  void shouldServeOldValueWhileReloading() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfter(0);
+    CountDownLatch reloading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    cache.putObject("key", "old");
+    cache.setLoader("key", () -> {
+      reloading.countDown();
+      release.await();
+      return "new";
+    });
+    assertEquals("old", cache.getObject("key"));
+    assertTrue(reloading.await(5, TimeUnit.SECONDS));
+    assertEquals("old", cache.getObject("key"));
+    release.countDown();
+    assertTrue(awaitValue(cache, "key", "new"));
+  }
+
+  @Test
+  void shouldNotReloadFreshEntries() {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfter(60000);
+    AtomicInteger loads = new AtomicInteger();
+    cache.putObject("key", "value");
+    cache.setLoader("key", () -> "value" + loads.incrementAndGet());
+    assertEquals("value", cache.getObject("key"));
+    assertEquals(0, loads.get());
+  }
+
+  @Test
+  void shouldKeepLoadersOfLastLoadedKeysOnly() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfter(0);
+    cache.setSize(2);
+    AtomicInteger firstKeyLoads = new AtomicInteger();
+    cache.putObject(0, "old");
+    cache.setLoader(0, () -> "new" + firstKeyLoads.incrementAndGet());
+    for (int i = 1; i < 3; i++) {
+      cache.putObject(i, "old");
+      cache.setLoader(i, () -> "new");
+    }
+    cache.setLoader(2, () -> "new");
+    assertEquals("old", cache.getObject(0));
+    assertEquals("old", cache.getObject(1));
+    assertTrue(awaitValue(cache, 1, "new"));
+    assertEquals("old", cache.getObject(0));
+    assertEquals(0, firstKeyLoads.get());
+  }
+
+  @Test
+  void shouldDiscardReloadOfClearedEntry() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfter(0);
+    CountDownLatch reloading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch reloaded = new CountDownLatch(1);
+    cache.putObject("key", "old");
+    cache.setLoader("key", () -> {
+      reloading.countDown();
+      release.await();
+      reloaded.countDown();
+      return "new";
+    });
+    cache.getObject("key");
+    assertTrue(reloading.await(5, TimeUnit.SECONDS));
+    cache.clear();
+    release.countDown();
+    assertTrue(reloaded.await(5, TimeUnit.SECONDS));
+    Thread.sleep(100);
+    assertNull(cache.getObject("key"));
+  }
+
+  @Test
+  void shouldKeepValueWhenReloadFails() throws Exception {
+    RefreshAheadCache cache = new RefreshAheadCache(new PerpetualCache("default"));
+    cache.setRefreshAfter(0);
+    CountDownLatch failed = new CountDownLatch(1);
+    cache.putObject("key", "value");
+    cache.setLoader("key", () -> {
+      failed.countDown();
+      throw new IllegalStateException("database down");
+    });
+    cache.getObject("key");
+    assertTrue(failed.await(5, TimeUnit.SECONDS));
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  private static boolean awaitValue(Cache cache, Object key, Object expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline) {
+      if (expected.equals(cache.getObject(key))) {
+        return true;
+      }
+      Thread.sleep(10);
+    }
+    return false;
+  }
+
+}
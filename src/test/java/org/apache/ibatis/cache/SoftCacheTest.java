@@ -15,8 +15,15 @@
  */
 package org.apache.ibatis.cache;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.Test;
@@ -73,4 +80,32 @@ class SoftCacheTest {
     assertNull(cache.getObject(4));
   }
 
-}
\ No newline at end of file
+  @Test
+  void shouldBeThreadSafeOverConcurrentCache() throws Exception {
+    SoftCache cache = new SoftCache(new ConcurrentPerpetualCache("default"));
+    cache.setSize(16);
+    assertTrue(cache.isThreadSafe());
+    assertFalse(new SoftCache(new PerpetualCache("default")).isThreadSafe());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        final int offset = t * 1000;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1000; i++) {
+            cache.putObject(offset + i, offset + i);
+            Object value = cache.getObject(offset + i);
+            assertTrue(value == null || value.equals(offset + i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.getSize() <= 4000);
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class SynchronizedCacheTest {
+
+  @Test
+  void shouldLoadWithoutHoldingTheLock() {
+    Cache cache = new SynchronizedCache(new PerpetualCache("default"));
+    cache.putObject(1, "one");
+    Object value = cache.getOrLoad(0, k -> {
+      // another thread can read the cache while the key is loading
+      try {
+        return CompletableFuture.supplyAsync(() -> cache.getObject(1)).get(5, TimeUnit.SECONDS) + " loaded";
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertEquals("one loaded", value);
+    assertEquals("one loaded", cache.getObject(0));
+  }
+
+  @Test
+  void shouldRemoveKeyWhenLoadFails() {
+    Cache cache = new SynchronizedCache(new PerpetualCache("default"));
+    assertThrows(IllegalStateException.class, () -> cache.getOrLoad(0, k -> {
+      throw new IllegalStateException();
+    }));
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+}
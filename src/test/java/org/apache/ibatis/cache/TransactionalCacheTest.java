@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class TransactionalCacheTest {
+
+  @Test
+  void shouldFlushEntriesAndMissesInOneBatchOnCommit() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    assertNull(cache.getObject("missed"));
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, delegate.getSize());
+    cache.commit();
+    assertEquals(1, delegate.batches.get());
+    assertEquals(0, delegate.singles.get());
+    assertEquals(101, delegate.getSize());
+    assertEquals(99, delegate.getObject(99));
+  }
+
+  @Test
+  void shouldReleaseMissesInOneBatchOnRollback() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.getObject("missed1");
+    cache.getObject("missed2");
+    cache.putObject("key", "value");
+    cache.rollback();
+    assertEquals(1, delegate.removals.get());
+    assertEquals(0, delegate.getSize());
+  }
+
+  @Test
+  void shouldReleaseEveryMissWhenOneReleaseFails() {
+    Set<Object> released = new HashSet<>();
+    Cache delegate = new PerpetualCache("default") {
+      @Override
+      public Object removeObject(Object key) {
+        if ("broken".equals(key)) {
+          throw new IllegalStateException();
+        }
+        released.add(key);
+        return super.removeObject(key);
+      }
+
+      @Override
+      public void removeAll(Collection<?> keys) {
+        throw new IllegalStateException();
+      }
+    };
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.getObject("broken");
+    cache.getObject("missed1");
+    cache.getObject("missed2");
+    cache.rollback();
+    assertEquals(new HashSet<>(Arrays.asList("missed1", "missed2")), released);
+  }
+
+  @Test
+  void shouldCommitThroughStandardDecorators() {
+    Cache cache = new CacheBuilder("default").readWrite(true).blocking(true).build();
+    TransactionalCache transactionalCache = new TransactionalCache(cache);
+    assertNull(transactionalCache.getObject("a"));
+    transactionalCache.putObject("a", "1");
+    transactionalCache.putObject("b", "2");
+    transactionalCache.commit();
+    Map<Object, Object> values = cache.getAll(Arrays.asList("a", "b", "c"));
+    assertEquals(2, values.size());
+    assertEquals("1", values.get("a"));
+    assertEquals("2", values.get("b"));
+  }
+
+  @Test
+  void shouldPutLoadedEntriesAtOnce() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    AtomicInteger loads = new AtomicInteger();
+    assertEquals("1", cache.getOrLoad("a", k -> "" + loads.incrementAndGet()));
+    assertEquals("1", cache.getOrLoad("a", k -> "" + loads.incrementAndGet()));
+    assertEquals(1, loads.get());
+    assertEquals(1, delegate.singles.get());
+    assertEquals("1", delegate.getObject("a"));
+  }
+
+  @Test
+  void shouldBufferLoadedEntriesAfterClear() {
+    CountingCache delegate = new CountingCache();
+    TransactionalCache cache = new TransactionalCache(delegate);
+    cache.clear();
+    assertEquals("1", cache.getOrLoad("a", k -> "1"));
+    assertEquals(0, delegate.getSize());
+    cache.commit();
+    assertEquals("1", delegate.getObject("a"));
+  }
+
+  @Test
+  void shouldLoadThroughStandardDecorators() {
+    Cache cache = new CacheBuilder("default").readWrite(true).blocking(true).build();
+    TransactionalCache transactionalCache = new TransactionalCache(cache);
+    StringBuilder loaded = new StringBuilder("1");
+    assertSame(loaded, transactionalCache.getOrLoad("a", k -> loaded));
+    Object copy = transactionalCache.getOrLoad("a", k -> fail("should not load twice"));
+    assertNotSame(loaded, copy);
+    assertEquals("1", copy.toString());
+  }
+
+  private static class CountingCache extends PerpetualCache {
+    private final AtomicInteger batches = new AtomicInteger();
+    private final AtomicInteger singles = new AtomicInteger();
+    private final AtomicInteger removals = new AtomicInteger();
+
+    CountingCache() {
+      super("default");
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      singles.incrementAndGet();
+      super.putObject(key, value);
+    }
+
+    @Override
+    public void putAll(Map<?, ?> entries) {
+      batches.incrementAndGet();
+      super.putAll(entries);
+    }
+
+    @Override
+    public void removeAll(Collection<?> keys) {
+      removals.incrementAndGet();
+      super.removeAll(keys);
+    }
+  }
+
+}
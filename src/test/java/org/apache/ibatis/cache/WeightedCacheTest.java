@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class WeightedCacheTest {
+
+  @Test
+  void shouldRemoveLeastRecentlyUsedItemsBeyondMaxBytes() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher(value -> value == null ? 0 : ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    for (int i = 0; i < 4; i++) {
+      cache.putObject(i, new byte[30]);
+    }
+    assertNull(cache.getObject(0));
+    assertNotNull(cache.getObject(1));
+    assertEquals(90, cache.getTotalBytes());
+    cache.putObject(4, new byte[60]);
+    assertNull(cache.getObject(2));
+    assertNull(cache.getObject(3));
+    assertNotNull(cache.getObject(1));
+    assertEquals(90, cache.getTotalBytes());
+    assertEquals(2, cache.getSize());
+  }
+
+  @Test
+  void shouldNotCacheValuesHeavierThanMaxBytes() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.setWeigher(value -> value == null ? 0 : ((byte[]) value).length);
+    cache.setMaxBytes(100);
+    cache.putObject(0, new byte[10]);
+    cache.putObject(0, new byte[101]);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getTotalBytes());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    cache.putObject(0, "zero");
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getTotalBytes());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    WeightedCache cache = new WeightedCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getTotalBytes());
+  }
+
+  @Test
+  void shouldForgetEntriesEvictedAbove() {
+    WeightedCache weightedCache = new WeightedCache(new PerpetualCache("default"));
+    weightedCache.setWeigher(value -> value == null ? 0 : ((byte[]) value).length);
+    weightedCache.setMaxBytes(1000);
+    LruCache cache = new LruCache(weightedCache);
+    cache.setSize(2);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, new byte[30]);
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(60, weightedCache.getTotalBytes());
+  }
+
+}
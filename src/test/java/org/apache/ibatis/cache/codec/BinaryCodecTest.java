@@ -0,0 +1,208 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Comment;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class BinaryCodecTest {
+
+  private final BinaryCodec codec = new BinaryCodec();
+
+  @Test
+  void shouldRoundTripSimpleValues() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.asList("text", "", 1, -1, Integer.MIN_VALUE, Long.MAX_VALUE, (short) 7, (byte) -3,
+        'c', 1.5f, -2.25d, true, false, new BigDecimal("-123.4500"), new BigInteger("123456789012345678901234567890"),
+        new Date(1000L), new java.sql.Date(2000L), new java.sql.Time(3000L), timestamp, Section.NEWS,
+        LocalDate.of(2019, 6, 1), new TreeSet<>(Arrays.asList(3, 1, 2)), null);
+    for (Object value : values) {
+      Object copy = codec.decode(codec.encode(value));
+      assertEquals(value, copy);
+      assertEquals(value == null ? null : value.getClass(), copy == null ? null : copy.getClass());
+    }
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) codec.decode(codec.encode(new byte[] { 1, 2, 3 })));
+    assertArrayEquals(new int[] { 1, 2, 3 }, (int[]) codec.decode(codec.encode(new int[] { 1, 2, 3 })));
+    assertArrayEquals(new String[] { "a", null }, (String[]) codec.decode(codec.encode(new String[] { "a", null })));
+  }
+
+  @Test
+  void shouldRoundTripCollectionsAndMaps() {
+    Map<String, Object> row = new HashMap<>();
+    row.put("id", 1);
+    row.put("names", new ArrayList<>(Arrays.asList("a", "b")));
+    List<Object> rows = new ArrayList<>();
+    rows.add(row);
+    rows.add(Collections.unmodifiableList(Arrays.asList(1, 2)));
+    Object copy = codec.decode(codec.encode(rows));
+    assertEquals(rows, copy);
+    assertNotSame(row, ((List<?>) copy).get(0));
+  }
+
+  @Test
+  void shouldCopyBeansPreservingCycles() {
+    Blog blog = newBlog();
+    Blog copy = (Blog) codec.decode(codec.encode(blog));
+    assertNotSame(blog, copy);
+    assertEquals(blog.getTitle(), copy.getTitle());
+    assertEquals(blog.getAuthor().getUsername(), copy.getAuthor().getUsername());
+    assertEquals(blog.getAuthor().getFavouriteSection(), copy.getAuthor().getFavouriteSection());
+    Post post = copy.getPosts().get(0);
+    assertEquals("subject", post.getSubject());
+    assertSame(copy, post.getBlog());
+    assertSame(copy.getAuthor(), post.getAuthor());
+    assertSame(post, post.getComments().get(0).getPost());
+    assertEquals(new Date(5000L), post.getCreatedOn());
+  }
+
+  @Test
+  void shouldWriteRegisteredClassesWithoutTheirNames() {
+    BinaryCodec registered = new BinaryCodec();
+    registered.register(Blog.class, Author.class, Post.class, Comment.class);
+    byte[] withNames = codec.encode(newBlog());
+    byte[] withoutNames = registered.encode(newBlog());
+    assertTrue(withoutNames.length < withNames.length);
+    Blog copy = (Blog) registered.decode(withoutNames);
+    assertEquals("blog", copy.getTitle());
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "password", "user" + i + "@example.com", "bio", Section.NEWS));
+    }
+    assertTrue(codec.encode(authors).length < new JavaSerializationCodec().encode(authors).length);
+  }
+
+  @Test
+  void shouldBeUsableBySerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), codec);
+    Blog blog = newBlog();
+    cache.putObject(0, blog);
+    blog.setTitle("changed");
+    assertEquals("blog", ((Blog) cache.getObject(0)).getTitle());
+    assertNotSame(cache.getObject(0), cache.getObject(0));
+  }
+
+  static Blog newBlog() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "", Section.NEWS);
+    Blog blog = new Blog(1, "blog", author, new ArrayList<>());
+    Post post = new Post();
+    post.setId(2);
+    post.setBlog(blog);
+    post.setAuthor(author);
+    post.setSubject("subject");
+    post.setCreatedOn(new Date(5000L));
+    Comment comment = new Comment();
+    comment.setId(3);
+    comment.setPost(post);
+    comment.setComment("comment");
+    post.setComments(new ArrayList<>(Collections.singletonList(comment)));
+    blog.getPosts().add(post);
+    return blog;
+  }
+
+  @Test
+  void shouldSerializeObjectsWithStateHiddenFromProperties() {
+    SerializableChild child = new SerializableChild();
+    child.setValue("child");
+    child.setParentValue("parent");
+    SerializableChild copy = (SerializableChild) codec.decode(codec.encode(child));
+    assertEquals("child", copy.getValue());
+    assertEquals("parent", copy.getParentValue());
+
+    Child notSerializable = new Child();
+    notSerializable.setValue("child");
+    assertThrows(CacheException.class, () -> codec.encode(notSerializable));
+  }
+
+  public static class Parent {
+    private String value;
+
+    public String getParentValue() {
+      return value;
+    }
+
+    public void setParentValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class Child extends Parent {
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class SerializableParent implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String value;
+
+    public String getParentValue() {
+      return value;
+    }
+
+    public void setParentValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class SerializableChild extends SerializableParent {
+    private static final long serialVersionUID = 1L;
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.junit.jupiter.api.Test;
+
+class DeepCopyCodecTest {
+
+  private final DeepCopyCodec codec = new DeepCopyCodec();
+
+  @Test
+  void shouldShareImmutableValues() {
+    String text = new String("text");
+    assertSame(text, codec.decode(codec.encode(text)));
+    Integer number = 1000;
+    assertSame(number, codec.decode(codec.encode(number)));
+  }
+
+  @Test
+  void shouldCopyMutableValues() {
+    Date date = new Date(1000L);
+    Object copy = codec.decode(codec.encode(date));
+    assertEquals(date, copy);
+    assertNotSame(date, copy);
+
+    Map<String, Object> row = new HashMap<>();
+    row.put("created", date);
+    List<Object> rows = new ArrayList<>();
+    rows.add(row);
+    rows.add(new int[] { 1, 2 });
+    @SuppressWarnings("unchecked")
+    List<Object> rowsCopy = (List<Object>) codec.decode(codec.encode(rows));
+    assertEquals(row, rowsCopy.get(0));
+    assertNotSame(row, rowsCopy.get(0));
+    assertArrayEquals(new int[] { 1, 2 }, (int[]) rowsCopy.get(1));
+  }
+
+  @Test
+  void shouldCopyBeansPreservingCycles() {
+    Blog blog = BinaryCodecTest.newBlog();
+    Blog copy = (Blog) codec.decode(codec.encode(blog));
+    assertNotSame(blog, copy);
+    assertNotSame(blog.getAuthor(), copy.getAuthor());
+    assertEquals(blog.getAuthor().getEmail(), copy.getAuthor().getEmail());
+    Post post = copy.getPosts().get(0);
+    assertNotSame(blog.getPosts().get(0), post);
+    assertSame(copy, post.getBlog());
+    assertSame(post, post.getComments().get(0).getPost());
+  }
+
+  @Test
+  void shouldBeUsableBySerializedCache() {
+    Cache cache = new SerializedCache(new PerpetualCache("default"), codec);
+    Blog blog = BinaryCodecTest.newBlog();
+    cache.putObject(0, blog);
+    blog.setTitle("changed");
+    assertEquals("blog", ((Blog) cache.getObject(0)).getTitle());
+  }
+
+  @Test
+  void shouldSerializeObjectsWithStateHiddenFromProperties() {
+    SerializableChild child = new SerializableChild();
+    child.setValue("child");
+    child.setParentValue("parent");
+    SerializableChild copy = (SerializableChild) codec.decode(codec.encode(child));
+    assertEquals("child", copy.getValue());
+    assertEquals("parent", copy.getParentValue());
+
+    Child notSerializable = new Child();
+    notSerializable.setValue("child");
+    assertThrows(CacheException.class, () -> codec.encode(notSerializable));
+  }
+
+  public static class Parent {
+    private String value;
+
+    public String getParentValue() {
+      return value;
+    }
+
+    public void setParentValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class Child extends Parent {
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class SerializableParent implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private String value;
+
+    public String getParentValue() {
+      return value;
+    }
+
+    public void setParentValue(String value) {
+      this.value = value;
+    }
+  }
+
+  public static class SerializableChild extends SerializableParent {
+    private static final long serialVersionUID = 1L;
+    private String value;
+
+    public String getValue() {
+      return value;
+    }
+
+    public void setValue(String value) {
+      this.value = value;
+    }
+  }
+
+}
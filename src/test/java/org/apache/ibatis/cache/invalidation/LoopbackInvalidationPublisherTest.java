@@ -0,0 +1,65 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LoopbackInvalidationPublisherTest {
+
+  @Test
+  void shouldDeliverToOtherMembersOfGroup() {
+    List<Invalidation> received1 = new ArrayList<>();
+    List<Invalidation> received2 = new ArrayList<>();
+    List<Invalidation> other = new ArrayList<>();
+    LoopbackInvalidationPublisher node1 = new LoopbackInvalidationPublisher("loopback");
+    LoopbackInvalidationPublisher node2 = new LoopbackInvalidationPublisher("loopback");
+    LoopbackInvalidationPublisher node3 = new LoopbackInvalidationPublisher("other");
+    node1.start(received1::add);
+    node2.start(received2::add);
+    node3.start(other::add);
+    try {
+      Invalidation invalidation = Invalidation.caches(Collections.singleton("namespace"));
+      node1.publish(invalidation);
+      assertThat(received1).isEmpty();
+      assertThat(received2).containsExactly(invalidation);
+      assertThat(other).isEmpty();
+    } finally {
+      node1.close();
+      node2.close();
+      node3.close();
+    }
+  }
+
+  @Test
+  void shouldStopDeliveringWhenClosed() {
+    List<Invalidation> received = new ArrayList<>();
+    LoopbackInvalidationPublisher node1 = new LoopbackInvalidationPublisher("closed");
+    LoopbackInvalidationPublisher node2 = new LoopbackInvalidationPublisher("closed");
+    node1.start(invalidation -> { });
+    node2.start(received::add);
+    node2.close();
+    node1.publish(Invalidation.tables(Collections.singleton("PERSON")));
+    node1.close();
+    assertThat(received).isEmpty();
+  }
+
+}
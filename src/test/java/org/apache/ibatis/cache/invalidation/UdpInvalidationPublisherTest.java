@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class UdpInvalidationPublisherTest {
+
+  @Test
+  void shouldSendInvalidationsToPeers() throws Exception {
+    BlockingQueue<Invalidation> received1 = new LinkedBlockingQueue<>();
+    BlockingQueue<Invalidation> received2 = new LinkedBlockingQueue<>();
+    UdpInvalidationPublisher node1 = new UdpInvalidationPublisher();
+    UdpInvalidationPublisher node2 = new UdpInvalidationPublisher();
+    node1.start(received1::add);
+    node2.start(received2::add);
+    try {
+      InetAddress localhost = InetAddress.getLoopbackAddress();
+      // a node ignores its own messages, so peer lists can be the same on every node
+      for (UdpInvalidationPublisher node : Arrays.asList(node1, node2)) {
+        node.addPeer(new InetSocketAddress(localhost, node1.getLocalPort()));
+        node.addPeer(new InetSocketAddress(localhost, node2.getLocalPort()));
+      }
+
+      Invalidation tables = Invalidation.tables(Arrays.asList("PERSON", "PET"));
+      node1.publish(tables);
+      assertThat(received2.poll(5, TimeUnit.SECONDS)).isEqualTo(tables);
+
+      Invalidation caches = Invalidation.caches(Arrays.asList("org.apache.ibatis.PersonMapper"));
+      node2.publish(caches);
+      assertThat(received1.poll(5, TimeUnit.SECONDS)).isEqualTo(caches);
+
+      assertThat(received1.poll(100, TimeUnit.MILLISECONDS)).isNull();
+      assertThat(received2.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldSplitLargeInvalidations() throws Exception {
+    BlockingQueue<Invalidation> received = new LinkedBlockingQueue<>();
+    UdpInvalidationPublisher node1 = new UdpInvalidationPublisher();
+    UdpInvalidationPublisher node2 = new UdpInvalidationPublisher();
+    node1.start(invalidation -> { });
+    node2.start(received::add);
+    try {
+      Properties properties = new Properties();
+      properties.setProperty("cacheInvalidation.peers", "127.0.0.1:" + node2.getLocalPort());
+      node1.setProperties(properties);
+      List<String> tables = new ArrayList<>();
+      for (int i = 0; i < 2000; i++) {
+        tables.add("TABLE_" + i);
+      }
+      node1.publish(Invalidation.tables(tables));
+      Set<String> names = new HashSet<>();
+      while (names.size() < tables.size()) {
+        Invalidation invalidation = received.poll(5, TimeUnit.SECONDS);
+        assertThat(invalidation).isNotNull();
+        assertThat(invalidation.getType()).isEqualTo(Invalidation.Type.TABLES);
+        names.addAll(invalidation.getNames());
+      }
+      assertThat(names).containsExactlyInAnyOrderElementsOf(tables);
+    } finally {
+      node1.close();
+      node2.close();
+    }
+  }
+
+  @Test
+  void shouldIgnoreSecondStart() {
+    UdpInvalidationPublisher node = new UdpInvalidationPublisher();
+    node.start(invalidation -> { });
+    try {
+      int port = node.getLocalPort();
+      node.start(invalidation -> { });
+      assertThat(node.getLocalPort()).isEqualTo(port);
+    } finally {
+      node.close();
+    }
+  }
+
+  @Test
+  void shouldIgnoreMessagesWithoutValidSignature() throws Exception {
+    BlockingQueue<Invalidation> received = new LinkedBlockingQueue<>();
+    Properties properties = new Properties();
+    properties.setProperty("cacheInvalidation.bindAddress", "127.0.0.1");
+    properties.setProperty("cacheInvalidation.secret", "secret");
+    UdpInvalidationPublisher node1 = new UdpInvalidationPublisher();
+    UdpInvalidationPublisher node2 = new UdpInvalidationPublisher();
+    UdpInvalidationPublisher unsigned = new UdpInvalidationPublisher();
+    UdpInvalidationPublisher otherSecret = new UdpInvalidationPublisher();
+    node1.setProperties(properties);
+    node2.setProperties(properties);
+    otherSecret.setSecret("other");
+    node1.start(invalidation -> { });
+    node2.start(received::add);
+    unsigned.start(invalidation -> { });
+    otherSecret.start(invalidation -> { });
+    try {
+      InetSocketAddress address = new InetSocketAddress("127.0.0.1", node2.getLocalPort());
+      for (UdpInvalidationPublisher node : Arrays.asList(unsigned, otherSecret, node1)) {
+        node.addPeer(address);
+      }
+
+      unsigned.publish(Invalidation.tables(Arrays.asList("UNSIGNED")));
+      otherSecret.publish(Invalidation.tables(Arrays.asList("OTHER_SECRET")));
+      Invalidation signed = Invalidation.tables(Arrays.asList("PERSON"));
+      node1.publish(signed);
+      assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(signed);
+      assertThat(received.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    } finally {
+      node1.close();
+      node2.close();
+      unsigned.close();
+      otherSecret.close();
+    }
+  }
+
+}
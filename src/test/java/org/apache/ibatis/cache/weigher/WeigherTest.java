@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.junit.jupiter.api.Test;
+
+class WeigherTest {
+
+  @Test
+  void shouldGrowWithTheNumberOfRows() {
+    Weigher weigher = new EstimatingWeigher();
+    long small = weigher.weigh(rows(10));
+    long large = weigher.weigh(rows(100000));
+    assertTrue(small > 10 * "name0".length());
+    assertTrue(large > small * 5000, large + " should be about 10000 times " + small);
+    assertTrue(large < small * 20000, large + " should be about 10000 times " + small);
+  }
+
+  @Test
+  void shouldWeighSharedAndCyclicObjectsOnce() {
+    Weigher weigher = new EstimatingWeigher();
+    Row row = new Row(1, "name");
+    row.setParent(row);
+    long single = weigher.weigh(Collections.singletonList(row));
+    long twice = weigher.weigh(Arrays.asList(row, row));
+    assertTrue(twice - single <= 16, "the second reference should only add a slot");
+  }
+
+  @Test
+  void shouldWeighByteArraysByTheirLength() {
+    assertEquals(100, new SerializedSizeWeigher().weigh(new byte[100]));
+    assertEquals(0, new SerializedSizeWeigher().weigh(null));
+    assertEquals(0, new EstimatingWeigher().weigh(null));
+  }
+
+  @Test
+  void shouldWeighBySerializedLength() {
+    List<Row> rows = rows(10);
+    assertEquals(new JavaSerializationCodec().encode(rows).length, new SerializedSizeWeigher().weigh(rows));
+  }
+
+  private static List<Row> rows(int count) {
+    List<Row> rows = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      rows.add(new Row(i, "name" + (i % 10)));
+    }
+    return rows;
+  }
+
+  public static class Row implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Integer id;
+    private String name;
+    private Row parent;
+
+    public Row() {
+    }
+
+    Row(Integer id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Row getParent() {
+      return parent;
+    }
+
+    public void setParent(Row parent) {
+      this.parent = parent;
+    }
+  }
+
+}
@@ -0,0 +1,50 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class InsertValuesSqlTest {
+
+  @Test
+  void shouldRepeatRowOfValues() {
+    InsertValuesSql sql = InsertValuesSql.parse("INSERT INTO author (id, name) VALUES (?, upper(?))");
+    assertThat(sql.getParametersPerRow()).isEqualTo(2);
+    assertThat(sql.getSql(1)).isEqualTo("INSERT INTO author (id, name) VALUES (?, upper(?))");
+    assertThat(sql.getSql(3))
+        .isEqualTo("INSERT INTO author (id, name) VALUES (?, upper(?)), (?, upper(?)), (?, upper(?))");
+  }
+
+  @Test
+  void shouldIgnoreQuotedText() {
+    InsertValuesSql sql = InsertValuesSql.parse("insert into \"values\" (a, b) values ('?)', ?);");
+    assertThat(sql.getParametersPerRow()).isEqualTo(1);
+    assertThat(sql.getSql(2)).isEqualTo("insert into \"values\" (a, b) values ('?)', ?), ('?)', ?)");
+  }
+
+  @Test
+  void shouldRejectStatementsThatCannotBeRepeated() {
+    assertThat(InsertValuesSql.parse("update author set name = ?")).isNull();
+    assertThat(InsertValuesSql.parse("insert into author select * from writer")).isNull();
+    assertThat(InsertValuesSql.parse("insert into author (id) values (?), (?)")).isNull();
+    assertThat(InsertValuesSql.parse("insert into author (id) values (?) returning id")).isNull();
+    assertThat(InsertValuesSql.parse("insert into author (id) values (?) on duplicate key update id = id")).isNull();
+    assertThat(InsertValuesSql.parse("insert into author (id) values ('unterminated)")).isNull();
+  }
+
+}
@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LocalCacheTest {
+
+  @Test
+  void shouldKeepEntriesUntilTrimmed() {
+    LocalCache cache = new LocalCache("local", 2, null);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertThat(cache.getSize()).isEqualTo(5);
+    cache.trim(key -> { });
+    assertThat(cache.getSize()).isEqualTo(2);
+    assertThat(cache.getObject(3)).isEqualTo(3);
+    assertThat(cache.getObject(4)).isEqualTo(4);
+  }
+
+  @Test
+  void shouldTrimLeastRecentlyUsedEntries() {
+    LocalCache cache = new LocalCache("local", 2, null);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    cache.getObject(0);
+    cache.putObject(2, 2);
+    List<Object> evicted = new ArrayList<>();
+    cache.trim(evicted::add);
+    assertThat(evicted).containsExactly(1);
+    assertThat(cache.getObject(0)).isEqualTo(0);
+    assertThat(cache.getObject(1)).isNull();
+    assertThat(cache.getObject(2)).isEqualTo(2);
+  }
+
+  @Test
+  void shouldTrimByEstimatedSize() {
+    LocalCache cache = new LocalCache("local", null, 1024L);
+    cache.putObject(1, new byte[2048]);
+    cache.putObject(0, Collections.nCopies(10, "x"));
+    cache.trim(key -> { });
+    assertThat(cache.getObject(0)).isNotNull();
+    assertThat(cache.getObject(1)).isNull();
+  }
+
+  @Test
+  void shouldNotTrimUnboundedCache() {
+    LocalCache cache = new LocalCache("local", null, null);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    cache.trim(key -> { });
+    assertThat(cache.getSize()).isEqualTo(100);
+  }
+
+}
@@ -91,6 +91,108 @@ class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  void shouldReuseCachedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createStatementCachingDataSource(2);
+    try {
+      PreparedStatement first;
+      try (Connection c = ds.getConnection(); PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT")) {
+        st.executeQuery().close();
+        first = st.unwrap(PreparedStatement.class);
+      }
+      try (Connection c = ds.getConnection(); PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT")) {
+        st.executeQuery().close();
+        assertSame(first, st.unwrap(PreparedStatement.class));
+        assertSame(c, st.getConnection());
+      }
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedStatements() throws Exception {
+    PooledDataSource ds = createStatementCachingDataSource(1);
+    try (Connection c = ds.getConnection()) {
+      c.prepareStatement("SELECT * FROM PRODUCT").close();
+      c.prepareStatement("SELECT * FROM CATEGORY").close();
+      c.prepareStatement("SELECT * FROM PRODUCT").close();
+      assertEquals(0, ds.getPoolState().getStatementCacheHitCount());
+      c.prepareStatement("SELECT * FROM PRODUCT").close();
+      c.prepareStatement("SELECT * FROM PRODUCT", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY).close();
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+      assertEquals(4, ds.getPoolState().getStatementCacheMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRestoreStatementSettingsWhenClosed() throws Exception {
+    PooledDataSource ds = createStatementCachingDataSource(2);
+    try (Connection c = ds.getConnection()) {
+      int fetchSize;
+      try (PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?")) {
+        fetchSize = st.getFetchSize();
+        st.setFetchSize(fetchSize + 10);
+        st.setQueryTimeout(5);
+        st.setString(1, "FI-SW-01");
+        st.executeQuery().close();
+      }
+      try (PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT WHERE PRODUCTID = ?")) {
+        assertEquals(fetchSize, st.getFetchSize());
+        assertEquals(0, st.getQueryTimeout());
+        assertThrows(SQLException.class, st::executeQuery);
+      }
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRejectUseOfClosedCachedStatement() throws Exception {
+    PooledDataSource ds = createStatementCachingDataSource(2);
+    try (Connection c = ds.getConnection()) {
+      PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT");
+      st.close();
+      assertTrue(st.isClosed());
+      assertThrows(SQLException.class, st::executeQuery);
+      assertFalse(c.prepareStatement("SELECT * FROM PRODUCT").isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseResultSetsWhenStatementIsReturned() throws Exception {
+    PooledDataSource ds = createStatementCachingDataSource(2);
+    try (Connection c = ds.getConnection()) {
+      ResultSet returned;
+      ResultSet current;
+      try (PreparedStatement st = c.prepareStatement("SELECT * FROM PRODUCT")) {
+        returned = st.executeQuery();
+        assertTrue(st.execute());
+        current = st.getResultSet();
+      }
+      assertTrue(returned.isClosed());
+      assertTrue(current.isClosed());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private PooledDataSource createStatementCachingDataSource(int cacheSize) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    runScript(ds, JPETSTORE_DDL);
+    ds.setPoolMaximumActiveConnections(1);
+    ds.setPoolMaximumIdleConnections(1);
+    ds.setPoolPreparedStatementCacheSize(cacheSize);
+    return ds;
+  }
+
   @Disabled("See the comments")
   @Test
   void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
@@ -18,11 +18,28 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSnapshots;
+import org.apache.ibatis.cache.codec.DeepCopyCodec;
+import org.apache.ibatis.cache.decorators.CompressedCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.GenerationalCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.decorators.WeightedCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.SerializedSizeWeigher;
+import org.apache.ibatis.session.Configuration;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.locks.ReadWriteLock;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +60,124 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void shouldRejectGenerationalSnapshotCache() {
+    when(new CacheBuilder("test").generational(true).snapshots(new CacheSnapshots(new Configuration()))).build();
+    then(caughtException()).isInstanceOf(CacheException.class)
+      .hasMessage("Cache 'test' cannot be both generational and saved to snapshots.");
+  }
+
+  @Test
+  void shouldSynchronizeChainWithNonThreadSafeLayers() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(LruCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void shouldNotSynchronizeThreadSafeChain() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class)
+        .addDecorator(ThreadSafeDecorator.class).readWrite(true).build();
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Assertions.assertThat(cache.isThreadSafe()).isTrue();
+  }
+
+  @Test
+  void shouldNotSynchronizeTinyLfuOverConcurrentCache() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(TinyLfuCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+  }
+
+  @Test
+  void shouldNotSynchronizeSoftCacheOverConcurrentCache() {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(SoftCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+  }
+
+  @Test
+  void shouldSynchronizeThreadSafeDecoratorOverPerpetualCache() {
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class).addDecorator(ThreadSafeDecorator.class).build();
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void shouldCopyValuesWithConfiguredCodec() {
+    Cache cache = new CacheBuilder("test").codec(DeepCopyCodec.class).readWrite(true).build();
+    Date date = new Date(1000L);
+    cache.putObject("key", date);
+    date.setTime(2000L);
+    Assertions.assertThat(cache.getObject("key")).isEqualTo(new Date(1000L));
+  }
+
+  @Test
+  void shouldExpireEntriesBelowEvictionDecorator() {
+    Cache cache = new CacheBuilder("test").timeToLive(60000L).timeToIdle(1000L).build();
+    Cache loggingCache = unwrap(cache);
+    Cache lruCache = unwrap(loggingCache);
+    Assertions.assertThat(lruCache).isInstanceOf(LruCache.class);
+    ExpiringCache expiringCache = unwrap(lruCache);
+    Assertions.assertThat(expiringCache.getTimeToLive()).isEqualTo(60000L);
+    Assertions.assertThat(expiringCache.getTimeToIdle()).isEqualTo(1000L);
+  }
+
+  @Test
+  void shouldDeriveCacheStoringEntriesAlike() {
+    Cache cache = new CacheBuilder("test").addDecorator(LruCache.class).size(2).timeToLive(60000L)
+        .readWrite(true).blocking(true).derive("test.entities").build();
+    Assertions.assertThat(cache.getId()).isEqualTo("test.entities");
+    Cache loggingCache = unwrap(cache);
+    Cache serializedCache = unwrap(loggingCache);
+    Cache lruCache = unwrap(serializedCache);
+    Assertions.assertThat(lruCache).isInstanceOf(LruCache.class);
+    ExpiringCache expiringCache = unwrap(lruCache);
+    Assertions.assertThat(expiringCache.getTimeToLive()).isEqualTo(60000L);
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    Assertions.assertThat(cache.getSize()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldBoundReadWriteCacheBySerializedBytes() {
+    Cache cache = new CacheBuilder("test").maxBytes(1000L).weigher(SerializedSizeWeigher.class).readWrite(true).build();
+    Cache loggingCache = unwrap(cache);
+    Cache serializedCache = unwrap(loggingCache);
+    Cache lruCache = unwrap(serializedCache);
+    Assertions.assertThat(lruCache).isInstanceOf(LruCache.class);
+    WeightedCache weightedCache = unwrap(lruCache);
+    Assertions.assertThat(weightedCache.getMaxBytes()).isEqualTo(1000L);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, "value" + i);
+    }
+    Assertions.assertThat(weightedCache.getTotalBytes()).isBetween(1L, 1000L);
+    Assertions.assertThat(cache.getObject(99)).isEqualTo("value99");
+    Assertions.assertThat(cache.getObject(0)).isNull();
+  }
+
+  @Test
+  void shouldCompressSerializedCopies() {
+    Cache cache = new CacheBuilder("test").compressThreshold(100).readWrite(true).build();
+    Cache loggingCache = unwrap(cache);
+    Cache serializedCache = unwrap(loggingCache);
+    CompressedCache compressedCache = unwrap(serializedCache);
+    Assertions.assertThat(compressedCache.getThreshold()).isEqualTo(100);
+    String value = String.join(",", Collections.nCopies(100, "value"));
+    cache.putObject("key", value);
+    Assertions.assertThat(cache.getObject("key")).isEqualTo(value);
+    Assertions.assertThat(compressedCache.getCompressedCount()).isEqualTo(1L);
+  }
+
+  @Test
+  void shouldWrapEvictionDecoratorInGenerationalCache() {
+    Cache cache = new CacheBuilder("test").size(10).generational(true).build();
+    Cache loggingCache = unwrap(cache);
+    GenerationalCache generationalCache = unwrap(loggingCache);
+    Assertions.assertThat((Cache) unwrap(generationalCache)).isInstanceOf(LruCache.class);
+    cache.putObject("key", "value");
+    cache.clear();
+    Assertions.assertThat(cache.getObject("key")).isNull();
+    Assertions.assertThat(generationalCache.getGeneration()).isEqualTo(1L);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
@@ -89,4 +224,54 @@ class CacheBuilderTest {
 
   }
 
+  public static class ThreadSafeDecorator implements Cache {
+
+    private final Cache delegate;
+
+    public ThreadSafeDecorator(Cache delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+      delegate.putObject(key, value);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+      return delegate.getObject(key);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+      return delegate.removeObject(key);
+    }
+
+    @Override
+    public void clear() {
+      delegate.clear();
+    }
+
+    @Override
+    public int getSize() {
+      return delegate.getSize();
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock() {
+      return null;
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+      return delegate.isThreadSafe();
+    }
+
+  }
+
 }
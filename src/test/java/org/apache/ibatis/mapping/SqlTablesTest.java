@@ -0,0 +1,69 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class SqlTablesTest {
+
+  @Test
+  void shouldFindTablesReadBySelect() {
+    assertThat(SqlTables.parse("select * from author", SqlCommandType.SELECT)).containsExactly("AUTHOR");
+    assertThat(SqlTables.parse("SELECT a.id FROM blog.Author a INNER JOIN post p ON p.author_id = a.id"
+        + " left outer join \"comment\" as c on c.post_id = p.id", SqlCommandType.SELECT))
+        .containsExactlyInAnyOrder("AUTHOR", "POST", "COMMENT");
+    assertThat(SqlTables.parse("select * from author a, blog b where b.author_id = a.id", SqlCommandType.SELECT))
+        .containsExactlyInAnyOrder("AUTHOR", "BLOG");
+  }
+
+  @Test
+  void shouldFindTablesOfSubQueries() {
+    assertThat(SqlTables.parse("select * from (select id from post) p where p.id in (select post_id from tag)",
+        SqlCommandType.SELECT)).containsExactlyInAnyOrder("POST", "TAG");
+  }
+
+  @Test
+  void shouldIgnoreCommentsAndLiterals() {
+    assertThat(SqlTables.parse("select * from author -- from post\n where name = 'from blog' /* join tag */",
+        SqlCommandType.SELECT)).containsExactly("AUTHOR");
+  }
+
+  @Test
+  void shouldFindTableWrittenByStatement() {
+    assertThat(SqlTables.parse("insert into author (id) values (1)", SqlCommandType.INSERT)).containsExactly("AUTHOR");
+    assertThat(SqlTables.parse("insert into author select * from author_import", SqlCommandType.INSERT))
+        .containsExactly("AUTHOR");
+    assertThat(SqlTables.parse("update blog.post set body = ?", SqlCommandType.UPDATE)).containsExactly("POST");
+    assertThat(SqlTables.parse("delete from tag where id = ?", SqlCommandType.DELETE)).containsExactly("TAG");
+    assertThat(SqlTables.parse("delete tag where id = ?", SqlCommandType.DELETE)).containsExactly("TAG");
+  }
+
+  @Test
+  void shouldFindNothingForUnknownStatements() {
+    assertThat(SqlTables.parse("{call refresh_stats()}", SqlCommandType.UPDATE)).isEmpty();
+    assertThat(SqlTables.parse("select 1", SqlCommandType.SELECT)).isEmpty();
+    assertThat(SqlTables.parse(null, SqlCommandType.SELECT)).isEmpty();
+    assertThat(SqlTables.parse("select * from author", SqlCommandType.FLUSH)).isEmpty();
+  }
+
+  @Test
+  void shouldNormalizeDeclaredTables() {
+    assertThat(SqlTables.of("author, blog.Post ,", "\"tag\"")).containsExactly("AUTHOR", "POST", "TAG");
+  }
+
+}
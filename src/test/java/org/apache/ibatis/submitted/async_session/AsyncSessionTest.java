@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.io.Reader;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.AsyncSqlSession;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionException;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncSessionTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_session/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_session/CreateDB.sql");
+    sqlSessionFactory.getConfiguration().setAsyncThreadFactory(runnable -> new Thread(runnable, "async-session-test"));
+  }
+
+  @Test
+  void shouldRunOperationsInOrderOnThreadOfConfiguredFactory() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      CompletableFuture<Integer> insert = session.insert("org.apache.ibatis.submitted.async_session.Mapper.insertUser",
+          new User(3, "User3"));
+      CompletableFuture<List<User>> users = session.selectList("org.apache.ibatis.submitted.async_session.Mapper.getUsers");
+      CompletableFuture<Void> commit = session.commit();
+      CompletableFuture<Thread> thread = session.execute(sqlSession -> Thread.currentThread());
+      CompletableFuture<Thread> sameThread = session.execute(sqlSession -> Thread.currentThread());
+
+      assertThat(insert.join()).isEqualTo(1);
+      assertThat(users.join()).extracting(User::getName).containsExactly("User1", "User2", "User3");
+      commit.join();
+      assertThat(thread.join().getName()).isEqualTo("async-session-test");
+      assertThat(sameThread.join()).isSameAs(thread.join());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).count()).isEqualTo(3);
+    }
+  }
+
+  @Test
+  void shouldRunMapperFuturesAsynchronously() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(1);
+      CompletableFuture<Void> rename = mapper.rename(2, "Renamed").toCompletableFuture();
+      CompletableFuture<List<User>> users = mapper.getUsers();
+      assertThat(user.join().getName()).isEqualTo("User1");
+      assertThat(rename.join()).isNull();
+      assertThat(users.join()).extracting(User::getName).containsExactly("User1", "Renamed");
+      assertThat(mapper.findUser(3).join()).isEmpty();
+      // blocking methods wait for the operations submitted before
+      assertThat(mapper.count()).isEqualTo(2);
+      assertThat(session.execute(sqlSession -> mapper.count()).join()).isEqualTo(2);
+      session.rollback().join();
+    }
+  }
+
+  @Test
+  void shouldFailFollowingOperationsUntilRollback() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      Mapper mapper = session.getMapper(Mapper.class);
+      CompletableFuture<Integer> insert = mapper.insertUser(new User(3, "User3"));
+      CompletableFuture<User> missing = mapper.selectMissing();
+      CompletableFuture<User> user = mapper.getUser(2);
+      CompletableFuture<Void> commit = session.commit();
+      assertThat(insert.join()).isEqualTo(1);
+      assertThatThrownBy(missing::join).isInstanceOf(CompletionException.class)
+          .hasCauseInstanceOf(PersistenceException.class);
+      assertThatThrownBy(user::join).hasCauseInstanceOf(SqlSessionException.class);
+      assertThatThrownBy(commit::join).hasCauseInstanceOf(SqlSessionException.class);
+
+      session.rollback().join();
+      assertThat(mapper.getUser(2).join().getName()).isEqualTo("User2");
+      assertThat(mapper.count()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void shouldReleaseBlockingCacheKeysOnSessionThread() {
+    try (AsyncSqlSession session = sqlSessionFactory.openAsyncSession()) {
+      CachedMapper mapper = session.getMapper(CachedMapper.class);
+      assertThat(mapper.getUser(1).join().getName()).isEqualTo("User1");
+      // the key missed by the select is released by the commit, which must run on the same thread
+      session.commit().join();
+    }
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+        assertThat(sqlSession.getMapper(CachedMapper.class).getUser(1).join().getName()).isEqualTo("User1");
+      }
+    });
+  }
+
+  @Test
+  void shouldReturnCompletedFuturesFromBlockingSession() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      CompletableFuture<User> user = mapper.getUser(1);
+      assertThat(user).isCompleted();
+      assertThat(user.join().getName()).isEqualTo("User1");
+      assertThat(mapper.insertUser(new User(4, "User4")).join()).isEqualTo(1);
+      assertThat(mapper.selectMissing()).isCompletedExceptionally();
+    }
+  }
+
+}
@@ -0,0 +1,161 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_flush;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_flush/CreateDB.sql");
+  }
+
+  @Test
+  void shouldFlushWhenBatchSizeIsReached() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        User user = new User("User" + i);
+        users.add(user);
+        mapper.insertUser(user);
+      }
+      // the first two chunks are already executed, so their generated keys are set
+      assertThat(users).extracting(User::getId).containsExactly(1, 2, 3, 4, null);
+
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(3);
+      assertThat(results).extracting(result -> result.getUpdateCounts().length).containsExactly(2, 2, 1);
+      assertThat(results.get(0).getParameterObjects()).containsExactly(users.get(0), users.get(1));
+      assertThat(users.get(4).getId()).isEqualTo(5);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(5);
+    }
+  }
+
+  @Test
+  void shouldStreamResultsOfPendingSizeFlushesToListener() {
+    List<BatchResult> flushed = new ArrayList<>();
+    sqlSessionFactory.getConfiguration().setBatchFlushPendingSize(3);
+    sqlSessionFactory.getConfiguration().setBatchRetainParameters(false);
+    sqlSessionFactory.getConfiguration().setBatchFlushListener(result -> {
+      assertThat(result.getParameterObjects()).isNotEmpty();
+      flushed.add(result);
+    });
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 4; i++) {
+        mapper.insertUser(new User("User" + i));
+        mapper.insertPet("Pet" + i);
+      }
+      assertThat(flushed).hasSize(6);
+
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(2);
+      assertThat(flushed).hasSize(8);
+      assertThat(flushed).allSatisfy(result -> {
+        assertThat(result.getUpdateCounts()).containsExactly(1);
+        assertThat(result.getParameterObjects()).isEmpty();
+      });
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(4);
+      assertThat(sqlSession.getMapper(Mapper.class).countPets()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void shouldDiscardAutoFlushedResultsOnRollback() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        mapper.insertUser(new User("User" + i));
+      }
+      sqlSession.rollback(true);
+      assertThat(sqlSession.flushStatements()).isEmpty();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(0);
+    }
+  }
+
+  @Test
+  void shouldGroupInterleavedStatements() {
+    sqlSessionFactory.getConfiguration().setBatchGrouping(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 4; i++) {
+        mapper.insertUser(new User("User" + i));
+        mapper.insertPet("Pet" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).extracting(BatchResult::getSql)
+          .containsExactly("insert into users (name) values (?)", "insert into pets (name) values (?)");
+      assertThat(results).allSatisfy(result -> assertThat(result.getUpdateCounts()).containsExactly(1, 1, 1, 1));
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(4);
+      assertThat(sqlSession.getMapper(Mapper.class).countPets()).isEqualTo(4);
+    }
+  }
+
+  @Test
+  void shouldFlushGroupsWhenGroupLimitIsReached() {
+    sqlSessionFactory.getConfiguration().setBatchGrouping(true);
+    sqlSessionFactory.getConfiguration().setBatchGroupLimit(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertUser(new User("User0"));
+      mapper.insertUser(new User("User1"));
+      mapper.insertPet("Pet0");
+      mapper.insertUser(new User("User2"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).extracting(result -> result.getUpdateCounts().length).containsExactly(2, 1, 1);
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countUsers()).isEqualTo(3);
+    }
+  }
+
+}
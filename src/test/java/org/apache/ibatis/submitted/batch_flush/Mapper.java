@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_flush;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into users (name) values (#{name})")
+  @Options(useGeneratedKeys = true, keyProperty = "id")
+  int insertUser(User user);
+
+  @Insert("insert into pets (name) values (#{name})")
+  int insertPet(String name);
+
+  @Insert("insert into pets (name) values (#{name,typeHandler=org.apache.ibatis.submitted.batch_flush.NullTypeHandler})")
+  int insertPetWithTypeHandler(@Param("name") String name);
+
+  @Select("select count(*) from users")
+  int countUsers();
+
+  @Select("select name from users order by id")
+  List<String> selectUserNames();
+
+  @Select("select count(*) from pets")
+  int countPets();
+
+  @Select("select name from pets order by id")
+  List<String> selectPetNames();
+
+}
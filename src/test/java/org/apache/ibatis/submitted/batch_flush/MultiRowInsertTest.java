@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_flush;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_flush/CreateDB.sql");
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareRecorder());
+  }
+
+  @Test
+  void shouldRewriteBatchedInsertsIntoMultiRowInserts() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRows(2);
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        User user = new User("User" + i);
+        users.add(user);
+        mapper.insertUser(user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(1);
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(1, 1, 1, 1, 1);
+      assertThat(users).extracting(User::getId).containsExactly(1, 2, 3, 4, 5);
+      sqlSession.commit();
+    }
+    assertThat(preparedSql).containsExactly(
+        "insert into users (name) values (?), (?)",
+        "insert into users (name) values (?)");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).selectUserNames())
+          .containsExactly("User0", "User1", "User2", "User3", "User4");
+    }
+  }
+
+  @Test
+  void shouldBindParametersWhenRowIsAdded() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRows(10);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user = new User();
+      for (int i = 0; i < 3; i++) {
+        user.setName("User" + i);
+        mapper.insertUser(user);
+      }
+      sqlSession.commit();
+    }
+    assertThat(preparedSql).containsExactly("insert into users (name) values (?), (?), (?)");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).selectUserNames()).containsExactly("User0", "User1", "User2");
+    }
+  }
+
+  @Test
+  void shouldLimitRowsByMaxParameters() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRows(10);
+    sqlSessionFactory.getConfiguration().setBatchInsertMaxParameters(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertPet("Pet0");
+      mapper.insertPet("Pet1");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(1, 1);
+      sqlSession.commit();
+    }
+    assertThat(preparedSql).containsExactly("insert into pets (name) values (?)");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).countPets()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void shouldBatchOriginalStatementWhenParametersCannotBeRecorded() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRows(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (String name : Arrays.asList("Pet0", "Pet1", "Pet2", null, "Pet4")) {
+        mapper.insertPetWithTypeHandler(name);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertThat(results).hasSize(1);
+      assertThat(results.get(0).getUpdateCounts()).containsExactly(1, 1, 1, 1, 1);
+      sqlSession.commit();
+    }
+    // the null parameter reads the parameter metadata, so the rows from the pending one on are batched as they are
+    assertThat(preparedSql).containsExactly(
+        "insert into pets (name) values (?), (?)",
+        "insert into pets (name) values (?)");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(Mapper.class).selectPetNames())
+          .containsExactly("Pet0", "Pet1", "Pet2", null, "Pet4");
+    }
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  private class PrepareRecorder implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      StatementHandler handler = (StatementHandler) invocation.getTarget();
+      if (handler.getBoundSql().getSql().startsWith("insert")) {
+        preparedSql.add(handler.getBoundSql().getSql());
+      }
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
+
+}
@@ -16,8 +16,13 @@
 package org.apache.ibatis.submitted.blocking_cache;
 
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.io.Resources;
@@ -64,6 +69,25 @@ class BlockingCacheTest {
     Assertions.assertTrue(totalTime > 1000);
   }
 
+  @Test
+  void shouldReleaseKeyOnLoadWhenPutOnLoad() throws Exception {
+    sqlSessionFactory.getConfiguration().setCachePutOnLoad(true);
+    ExecutorService defaultThreadPool = Executors.newFixedThreadPool(2);
+    // the key is released as soon as it is loaded, so the second session does not wait for the first one to end
+    CountDownLatch loaded = new CountDownLatch(2);
+
+    List<Future<Boolean>> results = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      results.add(defaultThreadPool.submit(() -> accessDB(loaded)));
+    }
+
+    defaultThreadPool.shutdown();
+
+    for (Future<Boolean> result : results) {
+      Assertions.assertTrue(result.get());
+    }
+  }
+
   private void accessDB() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
       PersonMapper pm = sqlSession.getMapper(PersonMapper.class);
@@ -76,4 +100,13 @@ class BlockingCacheTest {
     }
   }
 
+  private boolean accessDB(CountDownLatch loaded) throws InterruptedException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      PersonMapper pm = sqlSession.getMapper(PersonMapper.class);
+      Assertions.assertEquals(2, pm.findAll().size());
+      loaded.countDown();
+      return loaded.await(5, TimeUnit.SECONDS);
+    }
+  }
+
 }
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.invalidation.LoopbackInvalidationPublisher;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.CacheInvalidation;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInfo;
+
+class CacheInvalidationTest {
+
+  private SqlSessionFactory node1;
+  private SqlSessionFactory node2;
+
+  @BeforeEach
+  void setUp(TestInfo testInfo) throws Exception {
+    // two factories over the same database stand for two nodes of a cluster
+    Properties properties = new Properties();
+    properties.setProperty("cacheInvalidation.group", testInfo.getDisplayName());
+    node1 = build(properties);
+    node2 = build(properties);
+
+    BaseDataTest.runScript(node1.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_invalidation/CreateDB.sql");
+  }
+
+  @AfterEach
+  void tearDown() {
+    ((DefaultSqlSessionFactory) node1).close();
+    ((DefaultSqlSessionFactory) node2).close();
+  }
+
+  @Test
+  void shouldClearCacheOfOtherNode() {
+    assertThat(node1.getConfiguration().getCacheInvalidationPublisher())
+        .isInstanceOf(LoopbackInvalidationPublisher.class);
+    assertThat(findName(node1, 1)).isEqualTo("John");
+    rename(node2, 1, "Jim");
+    assertThat(findName(node1, 1)).isEqualTo("Jim");
+  }
+
+  @Test
+  void shouldInvalidateTablesOfOtherNode() {
+    node1.getConfiguration().setCacheInvalidation(CacheInvalidation.TABLE);
+    node2.getConfiguration().setCacheInvalidation(CacheInvalidation.TABLE);
+    assertThat(findName(node1, 1)).isEqualTo("John");
+    rename(node2, 1, "Jim");
+    assertThat(node1.getConfiguration().getTableVersions().getVersion("PERSON")).isEqualTo(1L);
+    assertThat(findName(node1, 1)).isEqualTo("Jim");
+  }
+
+  @Test
+  void shouldNotPublishRolledBackWrites() {
+    assertThat(findName(node1, 1)).isEqualTo("John");
+    try (SqlSession sqlSession = node2.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).rename(1, "Jim");
+      sqlSession.rollback();
+    }
+    node1.getConfiguration().getCache(PersonMapper.class.getName()).putObject("marker", "kept");
+    try (SqlSession sqlSession = node2.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).rename(1, "Jim");
+      sqlSession.rollback();
+    }
+    assertThat(node1.getConfiguration().getCache(PersonMapper.class.getName()).getObject("marker")).isEqualTo("kept");
+  }
+
+  private SqlSessionFactory build(Properties properties) throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_invalidation/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+  }
+
+  private String findName(SqlSessionFactory node, int id) {
+    try (SqlSession sqlSession = node.openSession()) {
+      return sqlSession.getMapper(PersonMapper.class).findName(id);
+    }
+  }
+
+  private void rename(SqlSessionFactory node, int id, String name) {
+    try (SqlSession sqlSession = node.openSession()) {
+      sqlSession.getMapper(PersonMapper.class).rename(id, name);
+      sqlSession.commit();
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cache_snapshot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CacheSnapshotTest {
+
+  private static final String MAPPER = "org/apache/ibatis/submitted/cache_snapshot/Mapper.xml";
+  private static final String CHANGED_MAPPER = "org/apache/ibatis/submitted/cache_snapshot/Mapper2.xml";
+
+  @TempDir
+  Path snapshotDirectory;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    sqlSessionFactory = build(MAPPER);
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cache_snapshot/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRestoreCachedResultsAfterRestart() throws Exception {
+    assertThat(findName(sqlSessionFactory, 1)).isEqualTo("John");
+    ((DefaultSqlSessionFactory) sqlSessionFactory).close();
+    Path snapshot = snapshotDirectory.resolve(PersonMapper.class.getName() + ".snapshot");
+    assertThat(snapshot).exists();
+
+    // only a restored cache can still return the old name
+    executeDirectly("update person set name = 'Jim' where id = 1");
+    SqlSessionFactory restarted = build(MAPPER);
+    // read back by the first session, not by the factory constructor
+    assertThat(snapshot).exists();
+    assertThat(findName(restarted, 1)).isEqualTo("John");
+    assertThat(findName(restarted, 2)).isEqualTo("Jane");
+    assertThat(snapshot).doesNotExist();
+  }
+
+  @Test
+  void shouldDropEntriesOfChangedStatements() throws Exception {
+    assertThat(findName(sqlSessionFactory, 1)).isEqualTo("John");
+    ((DefaultSqlSessionFactory) sqlSessionFactory).close();
+
+    executeDirectly("update person set name = 'Jim' where id = 1");
+    SqlSessionFactory restarted = build(CHANGED_MAPPER);
+    assertThat(findName(restarted, 1)).isEqualTo("JIM");
+  }
+
+  @Test
+  void shouldIgnoreCorruptSnapshots() throws Exception {
+    Files.write(snapshotDirectory.resolve(PersonMapper.class.getName() + ".snapshot"), new byte[] { 1, 2, 3 });
+    SqlSessionFactory restarted = build(MAPPER);
+    assertThat(findName(restarted, 1)).isEqualTo("John");
+  }
+
+  private SqlSessionFactory build(String mapperResource) throws Exception {
+    Properties properties = new Properties();
+    properties.setProperty("snapshotDirectory", snapshotDirectory.toString());
+    properties.setProperty("mapperResource", mapperResource);
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache_snapshot/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader, properties);
+    }
+  }
+
+  private String findName(SqlSessionFactory factory, int id) {
+    try (SqlSession sqlSession = factory.openSession()) {
+      return sqlSession.getMapper(PersonMapper.class).findPerson(id).getName();
+    }
+  }
+
+  private void executeDirectly(String sql) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+}
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.entity_cache;
+
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+@CacheNamespace
+public interface ConflictingEntityMapper {
+
+  @Select("select id, name from author where id = #{id}")
+  @Options(entityCache = true)
+  @Results(id = "authorMap", value = {
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "name", column = "name") })
+  Author selectAuthor(int id);
+
+  @Select("select id, upper(name) as name from author where id = #{id}")
+  @Options(entityCache = true)
+  @Results(id = "upperCaseAuthorMap", value = {
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "name", column = "name") })
+  Author selectUpperCaseAuthor(int id);
+
+}
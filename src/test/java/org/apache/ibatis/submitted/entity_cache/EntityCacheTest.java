@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.entity_cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EntityCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/entity_cache/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/entity_cache/CreateDB.sql");
+  }
+
+  @Test
+  void shouldShareEntityBetweenLookupStatements() throws Exception {
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+    // changed behind the back of the cache, so only a query that misses the cache can see it
+    executeDirectly("update author set name = 'Jim' where id = 1");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThat(sqlSession.getMapper(AuthorMapper.class).findAuthor(1).getName()).isEqualTo("John");
+    }
+  }
+
+  @Test
+  void shouldServeNestedSelectsFromEntityCache() throws Exception {
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+    executeDirectly("update author set name = 'Jim' where id = 1");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Post post = sqlSession.getMapper(PostMapper.class).selectPost(1);
+      assertThat(post.getAuthor().getName()).isEqualTo("John");
+    }
+  }
+
+  @Test
+  void shouldEvictOnlyWrittenEntity() throws Exception {
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+    assertThat(selectAuthor(2).getName()).isEqualTo("Jane");
+    executeDirectly("update author set name = 'Joan' where id = 2");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(AuthorMapper.class).updateAuthor(new Author(1, "Jim"));
+      sqlSession.commit();
+    }
+    assertThat(selectAuthor(1).getName()).isEqualTo("Jim");
+    assertThat(selectAuthor(2).getName()).isEqualTo("Jane");
+  }
+
+  @Test
+  void shouldClearEntitiesOnOtherWrites() throws Exception {
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+    executeDirectly("update author set name = 'Jim' where id = 1");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(AuthorMapper.class).updateAllNames();
+      sqlSession.commit();
+    }
+    assertThat(selectAuthor(1).getName()).isEqualTo("JIM");
+  }
+
+  @Test
+  void shouldBypassEntityCacheForEntitiesWrittenInTransaction() {
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      AuthorMapper mapper = sqlSession.getMapper(AuthorMapper.class);
+      mapper.updateAuthor(new Author(1, "Jim"));
+      assertThat(mapper.selectAuthor(1).getName()).isEqualTo("Jim");
+      sqlSession.rollback();
+    }
+    assertThat(selectAuthor(1).getName()).isEqualTo("John");
+  }
+
+  @Test
+  void shouldRequireResultMapWithIdProperties() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertThatThrownBy(() -> configuration.addMapper(InvalidEntityMapper.class))
+        .hasMessageContaining("uses the entity cache");
+  }
+
+  @Test
+  void shouldRejectAnotherResultMapForTheSameEntity() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertThatThrownBy(() -> configuration.addMapper(ConflictingEntityMapper.class))
+        .hasMessageContaining("upperCaseAuthorMap")
+        .hasMessageContaining("maps it with");
+  }
+
+  private Author selectAuthor(int id) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(AuthorMapper.class).selectAuthor(id);
+    }
+  }
+
+  private void executeDirectly(String sql) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_invalidation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TableInvalidationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_invalidation/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/table_invalidation/CreateDB.sql");
+  }
+
+  @Test
+  void shouldInvalidateCachedReadsOfWrittenTableInOtherNamespaces() {
+    assertThat(findNames()).containsExactly("John", "Jane");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).renamePerson(2, "Joan");
+      sqlSession.commit();
+    }
+    assertThat(findNames()).containsExactly("John", "Joan");
+  }
+
+  @Test
+  void shouldKeepCachedReadsOfOtherTables() throws Exception {
+    assertThat(findNames()).containsExactly("John", "Jane");
+    assertThat(findOwnerNames()).containsExactly("John");
+    // changed behind the back of the cache, so only a query that misses the cache can see it
+    executeDirectly("update person set name = 'Jim' where id = 1");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).insertPet(2, 2, "Tom");
+      sqlSession.commit();
+    }
+    assertThat(findNames()).containsExactly("John", "Jane");
+    assertThat(findOwnerNames()).containsExactly("Jim", "Jane");
+  }
+
+  @Test
+  void shouldBypassCacheForTablesWrittenInTransaction() {
+    assertThat(findNames()).containsExactly("John", "Jane");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(PetMapper.class).renamePerson(1, "Jim");
+      assertThat(sqlSession.getMapper(PersonMapper.class).findNames()).containsExactly("Jim", "Jane");
+      sqlSession.rollback();
+    }
+    assertThat(findNames()).containsExactly("John", "Jane");
+  }
+
+  @Test
+  void shouldUseDeclaredTables() {
+    assertThat(sqlSessionFactory.getConfiguration()
+        .getMappedStatement(PetMapper.class.getName() + ".touchPerson").getTables()).containsExactly("PERSON");
+    assertThat(sqlSessionFactory.getConfiguration()
+        .getMappedStatement(PersonMapper.class.getName() + ".findOwnerNames").getTables())
+        .containsExactlyInAnyOrder("PERSON", "PET");
+  }
+
+  private List<String> findNames() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(PersonMapper.class).findNames();
+    }
+  }
+
+  private List<String> findOwnerNames() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(PersonMapper.class).findOwnerNames();
+    }
+  }
+
+  private void executeDirectly(String sql) throws Exception {
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+
+}